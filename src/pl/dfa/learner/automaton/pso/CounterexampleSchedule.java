@@ -0,0 +1,159 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Active sample grown by counterexamples: the swarm starts on a few random 
+ * words, and every <code>interval</code> iterations the best solution of the 
+ * swarm is checked on the full word set. The words it misclassifies are added 
+ * to the sample, at most <code>maxAdded</code> at a time, so the sample only 
+ * grows as much as the problem needs. 
+ * 
+ */
+public class CounterexampleSchedule implements SampleSchedule { 
+
+	/**
+	 * Size of the first sample 
+	 */
+	private int initialSize; 
+
+	/**
+	 * Maximum number of words added by a check 
+	 */
+	private int maxAdded; 
+
+	/**
+	 * Number of iterations between two checks 
+	 */
+	private int interval; 
+
+	/**
+	 * Evaluator of the full word set 
+	 */
+	private Evaluator evaluator; 
+
+	/**
+	 * <code>true</code> for the words of the sample 
+	 */
+	private boolean[] inSample; 
+
+	/**
+	 * Number of words in the sample 
+	 */
+	private int size; 
+
+
+	/**
+	 * Creates a schedule 
+	 * 
+	 * @param initialSize number of random words of the first sample 
+	 * @param maxAdded maximum number of misclassified words added by a check 
+	 * @param interval number of iterations between two checks 
+	 */
+	public CounterexampleSchedule(int initialSize, int maxAdded, int interval) { 
+		if(initialSize < 1 || maxAdded < 1 || interval < 1) { 
+			throw new IllegalArgumentException("Invalid schedule, initialSize: "+initialSize
+					+", maxAdded: "+maxAdded+", interval: "+interval); 
+		}
+		this.initialSize = initialSize; 
+		this.maxAdded = maxAdded; 
+		this.interval = interval; 
+	}
+
+
+	@Override
+	public int[] start(Evaluator evaluator) { 
+		this.evaluator = evaluator; 
+		int total = evaluator.size(); 
+		int[] indexes = new int[total]; 
+		for(int i = 0; i < total; i++) { 
+			indexes[i] = i; 
+		}
+		this.inSample = new boolean[total]; 
+		this.size = 0; 
+		add(indexes, Math.min(this.initialSize, total)); 
+		return getSample(); 
+	}
+
+
+	@Override
+	public int[] next(int iteration, Solution best) { 
+		if(isFinal() || (iteration + 1) % this.interval != 0) { 
+			return null; 
+		}
+		int[] failed = this.evaluator.findFailedWords(new Solution(best)); 
+		int[] counterexamples = new int[failed.length]; 
+		int count = 0; 
+		for(int index: failed) { 
+			if(!this.inSample[index]) { 
+				counterexamples[count++] = index; 
+			}
+		}
+		if(count == 0) { 
+			return null; 
+		}
+		add(Arrays.copyOf(counterexamples, count), Math.min(this.maxAdded, count)); 
+		return getSample(); 
+	}
+
+
+	@Override
+	public boolean isFinal() { 
+		return this.size >= this.inSample.length; 
+	}
+
+
+	/**
+	 * @return the number of words in the sample 
+	 */
+	public int size() { 
+		return this.size; 
+	}
+
+
+	/**
+	 * Adds random words to the sample (partial Fisher-Yates shuffle) 
+	 * 
+	 * @param candidates indexes of the words not in the sample yet, shuffled in place 
+	 * @param number number of words to add 
+	 */
+	private void add(int[] candidates, int number) { 
+		Random random = SingletonRandom.getRandom(); 
+		for(int i = 0; i < number; i++) { 
+			int j = i + random.nextInt(candidates.length - i); 
+			int swap = candidates[i]; 
+			candidates[i] = candidates[j]; 
+			candidates[j] = swap; 
+			this.inSample[candidates[i]] = true; 
+		}
+		this.size += number; 
+	}
+
+
+	/**
+	 * @return indexes of the words of the sample, in increasing order 
+	 */
+	private int[] getSample() { 
+		int[] sample = new int[this.size]; 
+		int count = 0; 
+		for(int i = 0; i < this.inSample.length; i++) { 
+			if(this.inSample[i]) { 
+				sample[count++] = i; 
+			}
+		}
+		return sample; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "CounterexampleSchedule (sample of "+this.size+" words, at most "+this.maxAdded
+				+" added every "+this.interval+" iterations). "; 
+	}
+
+}
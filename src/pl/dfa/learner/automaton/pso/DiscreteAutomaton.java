@@ -0,0 +1,263 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.dfa.learner.automaton.DFA;
+
+
+/**
+ * Discretised (rounded) form of a <code>Solution</code>, used by the 
+ * <code>Evaluator</code> as a reusable scratch space. 
+ * Transitions are kept in a flat <code>int</code> table and the accepted 
+ * states in a bitmask, so loading another solution into the same object 
+ * does not create any objects once the arrays are large enough. 
+ * 
+ * States are kept as zero based indexes: the state <i>q</i> of a solution 
+ * is stored as <i>q</i>-1, so the initial state is always 0. Inputs are used 
+ * directly as column indexes of the transition table. 
+ * 
+ */
+public class DiscreteAutomaton { 
+
+	/**
+	 * Number of states 
+	 */
+	private int stateNumber; 
+
+	/**
+	 * Number of columns per state (highest input + 1) 
+	 */
+	private int stride; 
+
+	/**
+	 * Next state indexes, <code>transitions[state * stride + input]</code>, 
+	 * -1 for inputs not supported by the automaton 
+	 */
+	private int[] transitions; 
+
+	/**
+	 * Accepted states bitmask 
+	 */
+	private long[] accepted; 
+
+
+	/**
+	 * Creates an empty automaton, to be filled with <code>reset</code> 
+	 * and the setters (usually by <code>Solution.discretiseTo</code>). 
+	 */
+	public DiscreteAutomaton() { 
+		this.transitions = new int[0]; 
+		this.accepted = new long[1]; 
+	}
+
+
+	/**
+	 * Prepares this automaton for a new solution. The arrays are only 
+	 * reallocated if they are too small, all transitions are marked as 
+	 * unsupported and all states as rejecting. 
+	 * 
+	 * @param stateNumber number of states 
+	 * @param maxInput highest allowed input 
+	 */
+	public void reset(int stateNumber, int maxInput) { 
+		if(maxInput < 0) { 
+			throw new IllegalArgumentException("Inputs need to be non negative, highest input: "+maxInput); 
+		}
+		this.stateNumber = stateNumber; 
+		this.stride = maxInput + 1; 
+		int size = stateNumber * this.stride; 
+		if(this.transitions.length < size) { 
+			this.transitions = new int[size]; 
+		}
+		Arrays.fill(this.transitions, 0, size, -1); 
+		int words = (stateNumber >> 6) + 1; 
+		if(this.accepted.length < words) { 
+			this.accepted = new long[words]; 
+		}
+		Arrays.fill(this.accepted, 0, words, 0L); 
+	}
+
+
+	/**
+	 * Loads a reference automaton. The initial state becomes the state 0 and 
+	 * the other states follow in their natural order, transitions missing from 
+	 * the reference are left unsupported. 
+	 * 
+	 * @param dfa reference automaton 
+	 */
+	public void load(DFA dfa) { 
+		Map<Integer, Integer> indexes = new HashMap<Integer, Integer>(); 
+		indexes.put(dfa.getInitialState(), 0); 
+		for(Integer state: dfa.getStates()) { 
+			if(!indexes.containsKey(state)) { 
+				indexes.put(state, indexes.size()); 
+			}
+		}
+		int maxInput = 0; 
+		for(Integer input: dfa.getInputs()) { 
+			maxInput = Math.max(maxInput, input); 
+		}
+		reset(indexes.size(), maxInput); 
+		for(Map.Entry<Integer, Integer> state: indexes.entrySet()) { 
+			for(Integer input: dfa.getInputs()) { 
+				Integer next = dfa.getTransition(state.getKey(), input); 
+				if(next != null && indexes.containsKey(next)) { 
+					setTransition(state.getValue(), input, indexes.get(next)); 
+				}
+			}
+			setAccepted(state.getValue(), dfa.isAccepted(state.getKey())); 
+		}
+	}
+
+
+	/**
+	 * Sets the transition from the state <code>state</code> with the 
+	 * input <code>input</code>. 
+	 * 
+	 * @param state zero based state index 
+	 * @param input input 
+	 * @param next zero based index of the next state 
+	 */
+	public void setTransition(int state, int input, int next) { 
+		this.transitions[state * this.stride + input] = next; 
+	}
+
+
+	/**
+	 * Sets the acceptance of a state 
+	 * 
+	 * @param state zero based state index 
+	 * @param isAccepted <code>true</code> if the state is accepted 
+	 */
+	public void setAccepted(int state, boolean isAccepted) { 
+		if(isAccepted) { 
+			this.accepted[state >> 6] |= 1L << state; 
+		} else { 
+			this.accepted[state >> 6] &= ~(1L << state); 
+		}
+	}
+
+
+	/**
+	 * Checks the acceptance of a state 
+	 * 
+	 * @param state zero based state index 
+	 * @return <code>true</code> if the state is accepted 
+	 */
+	public boolean isAccepted(int state) { 
+		return (this.accepted[state >> 6] & (1L << state)) != 0; 
+	}
+
+
+	/**
+	 * Gets the next state for a given state and an input 
+	 * 
+	 * @param state zero based state index 
+	 * @param input input 
+	 * @return zero based index of the next state 
+	 */
+	public int getTransition(int state, int input) { 
+		int next = -1; 
+		if(input >= 0 && input < this.stride) { 
+			next = this.transitions[state * this.stride + input]; 
+		}
+		if(next < 0) { 
+			throw new IllegalStateException("The current input is not supported by this automaton, input: "+input); 
+		}
+		return next; 
+	}
+
+
+	/**
+	 * Runs the automaton from the initial state for a given word 
+	 * 
+	 * @param word word 
+	 * @return zero based index of the final state 
+	 */
+	public int run(List<Integer> word) { 
+		int state = 0; 
+		for(int i = 0, size = word.size(); i < size; i++) { 
+			state = getTransition(state, word.get(i)); 
+		}
+		return state; 
+	}
+
+
+	/**
+	 * Runs the automaton from the initial state for a given word 
+	 * 
+	 * @param word word, as an array of inputs 
+	 * @return zero based index of the final state 
+	 */
+	public int run(int[] word) { 
+		int state = 0; 
+		for(int i = 0; i < word.length; i++) { 
+			state = getTransition(state, word[i]); 
+		}
+		return state; 
+	}
+
+
+	/**
+	 * Checks if the automaton accepts a given word 
+	 * 
+	 * @param word word 
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean accepts(List<Integer> word) { 
+		return isAccepted(run(word)); 
+	}
+
+
+	/**
+	 * Checks if the automaton accepts a given word 
+	 * 
+	 * @param word word, as an array of inputs 
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean accepts(int[] word) { 
+		return isAccepted(run(word)); 
+	}
+
+
+	/**
+	 * @return the number of states 
+	 */
+	public int getStateNumber() { 
+		return this.stateNumber; 
+	}
+
+
+	/**
+	 * @return the number of columns per state of the transition table 
+	 */
+	int getStride() { 
+		return this.stride; 
+	}
+
+
+	/**
+	 * Gets the transition table, <code>table[state * getStride() + input]</code>. 
+	 * The table can be longer than <code>getStateNumber() * getStride()</code>. 
+	 * 
+	 * @return transition table, not a copy 
+	 */
+	int[] getTable() { 
+		return this.transitions; 
+	}
+
+
+	/**
+	 * @return the highest input supported by this automaton 
+	 */
+	public int getMaxInput() { 
+		return this.stride - 1; 
+	}
+
+}
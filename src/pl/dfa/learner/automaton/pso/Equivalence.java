@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Equivalence check of two automata (Hopcroft and Karp): the pairs of states 
+ * reached by the same words are merged into the classes of a union-find 
+ * structure, and the automata are equivalent if no pair reached that way 
+ * mixes an accepted and a non accepted state. Each pair is explored once, 
+ * so the check takes close to O((<i>m</i>+<i>n</i>)&middot;|&Sigma;|) steps. 
+ * 
+ * The empty word is not compared, like in the word sets used for learning. 
+ * A transition missing from an automaton leads to a rejecting sink state. 
+ * 
+ * @see https://en.wikipedia.org/wiki/DFA_minimization 
+ * 
+ */
+public class Equivalence { 
+
+	/**
+	 * Finds a counterexample of two automata: a non empty word accepted by one 
+	 * of them and rejected by the other. The pairs of states are explored in 
+	 * breadth first order, so the counterexample is usually short. 
+	 * 
+	 * @param first first automaton 
+	 * @param second second automaton 
+	 * @param inputs inputs of the compared words 
+	 * @return counterexample or <code>null</code> if the automata accept the same 
+	 * 			non empty words over <code>inputs</code>
+	 */
+	public static List<Integer> findCounterexample(DiscreteAutomaton first, DiscreteAutomaton second, int[] inputs) { 
+		int m = first.getStateNumber(); 
+		int n = second.getStateNumber(); 
+		// states of the second automaton follow the first one's, each automaton has its sink last
+		int[] parent = new int[m + n + 2]; 
+		for(int i = 0; i < parent.length; i++) { 
+			parent[i] = i; 
+		}
+		int capacity = m + n + 3; 
+		int[] firstStates = new int[capacity]; 
+		int[] secondStates = new int[capacity]; 
+		int[] previous = new int[capacity]; 
+		int[] lastInputs = new int[capacity]; 
+		firstStates[0] = 0; 
+		secondStates[0] = 0; 
+		previous[0] = -1; 
+		int size = 1; 
+		for(int pair = 0; pair < size; pair++) { 
+			for(int input: inputs) { 
+				int p = next(first, firstStates[pair], input); 
+				int q = next(second, secondStates[pair], input); 
+				int rootP = find(parent, p); 
+				int rootQ = find(parent, m + 1 + q); 
+				if(rootP == rootQ) { 
+					continue; 
+				}
+				if(isAccepted(first, p) != isAccepted(second, q)) { 
+					List<Integer> word = new ArrayList<Integer>(); 
+					word.add(input); 
+					for(int i = pair; previous[i] >= 0; i = previous[i]) { 
+						word.add(lastInputs[i]); 
+					}
+					Collections.reverse(word); 
+					return word; 
+				}
+				parent[rootP] = rootQ; 
+				firstStates[size] = p; 
+				secondStates[size] = q; 
+				previous[size] = pair; 
+				lastInputs[size] = input; 
+				size++; 
+			}
+		}
+		return null; 
+	}
+
+
+	/**
+	 * Gets the next state, the sink state (<code>getStateNumber()</code>) 
+	 * standing for the missing transitions 
+	 */
+	static int next(DiscreteAutomaton automaton, int state, int input) { 
+		int sink = automaton.getStateNumber(); 
+		if(state == sink || input < 0 || input >= automaton.getStride()) { 
+			return sink; 
+		}
+		int next = automaton.getTable()[state * automaton.getStride() + input]; 
+		return next < 0 ? sink : next; 
+	}
+
+
+	static boolean isAccepted(DiscreteAutomaton automaton, int state) { 
+		return state < automaton.getStateNumber() && automaton.isAccepted(state); 
+	}
+
+
+	/**
+	 * Finds the class of an element, halving the paths on the way 
+	 */
+	private static int find(int[] parent, int element) { 
+		while(parent[element] != element) { 
+			parent[element] = parent[parent[element]]; 
+			element = parent[element]; 
+		}
+		return element; 
+	}
+
+}
@@ -0,0 +1,183 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+
+
+/**
+ * Record of the last evaluation of a candidate (usually the current solution of a 
+ * particle) on the <code>WordTrie</code> of the evaluator's word set. 
+ * Keeps the state reached by each trie node and, for each transition (state, input), 
+ * the list of nodes reached through that transition. When the candidate moves, 
+ * the evaluator only re-runs the nodes whose transitions have changed 
+ * (see <code>Evaluator.evaluate(Solution, EvaluationTrace)</code>). 
+ * 
+ * A trace is not thread safe, it is meant to be used by one candidate at a time. 
+ * 
+ */
+public class EvaluationTrace { 
+
+	/**
+	 * Number of states of the traced automaton, -1 if the trace is empty 
+	 */
+	int stateNumber; 
+
+	/**
+	 * Number of columns per state of the traced automaton 
+	 */
+	int stride; 
+
+	/**
+	 * Transition table the trace was computed for 
+	 */
+	int[] table; 
+
+	/**
+	 * State reached by each node 
+	 */
+	int[] nodeState; 
+
+	/**
+	 * Transition (table cell) each node was reached through, -1 for the root 
+	 */
+	int[] nodeCell; 
+
+	/**
+	 * First node reached through each transition, -1 if the transition is not used 
+	 */
+	int[] cellHead; 
+
+	/**
+	 * Next node reached through the same transition, -1 at the end of the list 
+	 */
+	int[] nextNode; 
+
+	/**
+	 * Previous node reached through the same transition, -1 at the head of the list 
+	 */
+	int[] previousNode; 
+
+	/**
+	 * Number of non accepted (even indexes) and accepted (odd indexes) 
+	 * words ending in each state 
+	 */
+	double[] histogram; 
+
+
+	/**
+	 * Creates an empty trace for a trie 
+	 * 
+	 * @param nodeCount number of trie nodes 
+	 */
+	EvaluationTrace(int nodeCount) { 
+		this.stateNumber = -1; 
+		this.table = new int[0]; 
+		this.cellHead = new int[0]; 
+		this.histogram = new double[0]; 
+		this.nodeState = new int[nodeCount]; 
+		this.nodeCell = new int[nodeCount]; 
+		this.nextNode = new int[nodeCount]; 
+		this.previousNode = new int[nodeCount]; 
+	}
+
+
+	/**
+	 * Checks if the trace can be updated to an automaton 
+	 * 
+	 * @param automaton discretised candidate 
+	 * @return <code>true</code> if the trace was computed for an automaton of the same shape 
+	 */
+	boolean matches(DiscreteAutomaton automaton) { 
+		return this.stateNumber == automaton.getStateNumber()
+				&& this.stride == automaton.getStride(); 
+	}
+
+
+	/**
+	 * Empties the trace and prepares it for an automaton 
+	 * 
+	 * @param automaton discretised candidate 
+	 */
+	void reset(DiscreteAutomaton automaton) { 
+		this.stateNumber = automaton.getStateNumber(); 
+		this.stride = automaton.getStride(); 
+		int cells = this.stateNumber * this.stride; 
+		this.table = Arrays.copyOf(automaton.getTable(), cells); 
+		this.cellHead = new int[cells]; 
+		Arrays.fill(this.cellHead, -1); 
+		this.histogram = new double[2 * this.stateNumber]; 
+		this.nodeCell[0] = -1; 
+		this.nodeState[0] = 0; 
+	}
+
+
+	/**
+	 * Marks the trace as empty, so it is rebuilt on the next evaluation 
+	 */
+	void invalidate() { 
+		this.stateNumber = -1; 
+	}
+
+
+	/**
+	 * Adds a node to the list of a transition 
+	 * 
+	 * @param node trie node 
+	 * @param cell transition 
+	 */
+	void link(int node, int cell) { 
+		int head = this.cellHead[cell]; 
+		this.nodeCell[node] = cell; 
+		this.previousNode[node] = -1; 
+		this.nextNode[node] = head; 
+		if(head >= 0) { 
+			this.previousNode[head] = node; 
+		}
+		this.cellHead[cell] = node; 
+	}
+
+
+	/**
+	 * Removes a node from the list of its transition 
+	 * 
+	 * @param node trie node 
+	 */
+	void unlink(int node) { 
+		int previous = this.previousNode[node]; 
+		int next = this.nextNode[node]; 
+		if(previous >= 0) { 
+			this.nextNode[previous] = next; 
+		} else { 
+			this.cellHead[this.nodeCell[node]] = next; 
+		}
+		if(next >= 0) { 
+			this.previousNode[next] = previous; 
+		}
+	}
+
+
+	/**
+	 * Moves the words ending in a node between the states of the histogram 
+	 * 
+	 * @param trie word trie 
+	 * @param node trie node 
+	 * @param from previous state, -1 if the words were not counted yet 
+	 * @param to new state 
+	 */
+	void moveEnds(WordTrie trie, int node, int from, int to) { 
+		int nonAccepted = trie.nonAcceptedEnds[node]; 
+		int accepted = trie.acceptedEnds[node]; 
+		if(nonAccepted == 0 && accepted == 0) { 
+			return; 
+		}
+		if(from >= 0) { 
+			this.histogram[2 * from] -= nonAccepted; 
+			this.histogram[2 * from + 1] -= accepted; 
+		}
+		this.histogram[2 * to] += nonAccepted; 
+		this.histogram[2 * to + 1] += accepted; 
+	}
+
+}
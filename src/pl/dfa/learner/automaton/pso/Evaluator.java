@@ -1,34 +1,228 @@
 package pl.dfa.learner.automaton.pso;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
-import pl.dfa.learner.automaton.ComputeResults;
 import pl.dfa.learner.automaton.DFA;
-import pl.dfa.learner.automaton.DFAComputer;
-import pl.dfa.learner.automaton.DFAFactory;
 
 
 /**
  * 
  * Class used to evaluate solutions. 
  * Based on the word sets, divided into acceptable and unacceptable words. 
+ * The words are copied into arrays of inputs when the evaluator is created, 
+ * later changes of the word set are not visible to the evaluator. 
+ * 
+ * The final state histograms are counted by a <code>HistogramCounter</code>: 
+ * the words one by one or in lanes, sharded on a pool, the trie walked in 
+ * lockstep, the mapped files or the exhaustive sample. The errors, the optimal 
+ * acceptance and the cache entries are derived from the histogram the same 
+ * way for all of them. 
  *
  */
 public class Evaluator {
 
+	/**
+	 * Number of bounded evaluations after which the word order is refreshed 
+	 */
+	private static final int REORDER_INTERVAL = 64; 
+
+	/**
+	 * Acceptance values assigned to the solutions by the optimal acceptance mode 
+	 */
+	private static final Double ACCEPTED = Double.valueOf(1); 
+	private static final Double NOT_ACCEPTED = Double.valueOf(0); 
+
 	/**
 	 * Word set used for the evaluation 
 	 */
 	private WordSet wordSet; 
 	
+	/**
+	 * Words of the word set (accepted first), as arrays of inputs 
+	 */
+	private int[][] words; 
+
+	/**
+	 * Word labels, <code>true</code> for the accepted words 
+	 */
+	private boolean[] labels; 
+
+	/**
+	 * Inputs used by the words, in increasing order 
+	 */
+	private int[] alphabet; 
+
+	/**
+	 * Scratch space, one per evaluating thread 
+	 */
+	private ThreadLocal<Workspace> workspaces; 
+
+	/**
+	 * Optimal acceptance mode flag 
+	 */
+	private boolean optimalAcceptance; 
+
+	/**
+	 * Delta evaluation mode flag 
+	 */
+	private boolean deltaEvaluation; 
+
+	/**
+	 * Prefix tree of the words, built for the delta evaluations 
+	 */
+	private WordTrie trie; 
+
+	/**
+	 * Cache of the exact evaluations, <code>null</code> if disabled 
+	 */
+	private FitnessCache cache; 
+
+	/**
+	 * Pool the full evaluations are sharded on, <code>null</code> if disabled 
+	 */
+	private ForkJoinPool pool; 
+
+	/**
+	 * Counter of the full evaluations: the words, sharded on the pool, 
+	 * the mapped word set or the exhaustive sample 
+	 */
+	private HistogramCounter counter; 
+
+	/**
+	 * Counter of the words run one by one, <code>null</code> if the words 
+	 * are not loaded into <code>words</code> 
+	 */
+	private WordCounter wordCounter; 
+
+	/**
+	 * Lane evaluation mode flag 
+	 */
+	private boolean laneEvaluation; 
+
+	/**
+	 * Words interleaved for the lane evaluations 
+	 */
+	private WordLanes lanes; 
+
+	/**
+	 * Counter of the lane evaluations, sharded on the pool, 
+	 * <code>null</code> if disabled 
+	 */
+	private HistogramCounter laneCounter; 
+
+	/**
+	 * Counter of the lockstep evaluations, built on the first batch 
+	 */
+	private LockstepCounter lockstep; 
+
+	/**
+	 * Exhaustive sample scored without its words, <code>null</code> if the 
+	 * evaluator is based on a word set 
+	 */
+	private ExhaustiveSample exhaustive; 
+
+	/**
+	 * Word set read from its files for each evaluation, <code>null</code> if 
+	 * the words are loaded into <code>words</code> 
+	 */
+	private MappedWordSet mapped; 
+
+	/**
+	 * Counter of the mapped word set, <code>null</code> if there is none 
+	 */
+	private MappedCounter mappedCounter; 
+
 	
 	/**
 	 * Creates an <code>Evaluator</code> based on a <code>wordSet</code>. 
+	 * The words of a <code>MappedWordSet</code> are not loaded into the heap: 
+	 * each evaluation reads them from the mapped files, all the solutions of 
+	 * <code>evaluate(List)</code> in a single pass. All the evaluations are then 
+	 * exact and the delta, lockstep, lane and sharded modes have no effect. 
 	 * @param wordSet word set used for evaluations 
 	 */
 	public Evaluator(WordSet wordSet) { 
 		this.wordSet = wordSet; 
+		if(wordSet instanceof MappedWordSet) { 
+			this.mapped = (MappedWordSet) wordSet; 
+			this.mappedCounter = new MappedCounter(this.mapped); 
+			this.counter = this.mappedCounter; 
+			this.words = new int[0][]; 
+			this.labels = new boolean[0]; 
+			this.alphabet = new int[0]; 
+		} else { 
+			loadWords(); 
+		}
+		initWorkspaces(); 
+	}
+
+
+	/**
+	 * Creates an <code>Evaluator</code> based on a <code>wordSet</code> and the 
+	 * prefix tree of its words, e.g. generated together by <code>WordSetGenerator</code>, 
+	 * which saves building the tree for the delta and lockstep evaluations. 
+	 * 
+	 * @param wordSet word set used for evaluations 
+	 * @param trie prefix tree of the same words 
+	 */
+	public Evaluator(WordSet wordSet, WordTrie trie) { 
+		this(wordSet); 
+		this.trie = trie; 
+	}
+
+
+	/**
+	 * Creates an <code>Evaluator</code> for all the words of length 1 to 
+	 * <code>maxWordLength</code> labelled by a reference automaton, the word set 
+	 * built by <code>WordSetGenerator.generateWordSet(maxWordLength)</code>. 
+	 * The words are not enumerated: each evaluation counts the words with 
+	 * a dynamic program over the product of the reference and the solution 
+	 * (see <code>ExhaustiveSample</code>), so long words can be used. 
+	 * All the evaluations are then exact and the delta, lockstep, lane and 
+	 * sharded modes have no effect. <code>evaluateVerbose</code> is not supported. 
+	 * 
+	 * @param reference reference automaton, with a transition for each state and input 
+	 * @param maxWordLength highest word length 
+	 */
+	public Evaluator(DFA reference, int maxWordLength) { 
+		this.exhaustive = new ExhaustiveSample(reference, maxWordLength); 
+		this.counter = this.exhaustive; 
+		this.words = new int[0][]; 
+		this.labels = new boolean[0]; 
+		this.alphabet = new int[0]; 
+		initWorkspaces(); 
+	}
+
+
+	/**
+	 * Creates an <code>Evaluator</code> of words already converted into arrays 
+	 * 
+	 * @param words words, as arrays of inputs 
+	 * @param labels word labels, <code>true</code> for the accepted words 
+	 */
+	private Evaluator(int[][] words, boolean[] labels) { 
+		this.words = words; 
+		this.labels = labels; 
+		loadAlphabet(); 
+		this.wordCounter = new WordCounter(words, labels); 
+		this.counter = this.wordCounter; 
+		initWorkspaces(); 
+	}
+
+
+	private void initWorkspaces() { 
+		this.workspaces = new ThreadLocal<Workspace>() { 
+			@Override
+			protected Workspace initialValue() { 
+				return new Workspace(words.length); 
+			}
+		}; 
 	} 
 	
 	
@@ -51,23 +245,182 @@ public class Evaluator {
 	 * @return ratio of correctly accepted words 
 	 */
 	public double evaluate(Solution solution) { 
-		DFA toEvaluate = DFAFactory.convertFromSolution(solution); 
-		DFAComputer computer = new DFAComputer(toEvaluate); 
+		Workspace workspace = this.workspaces.get(); 
+		DiscreteAutomaton automaton = workspace.load(solution); 
+		if(evaluateCached(solution, automaton, workspace.key)) { 
+			return solution.getEvaluation(); 
+		}
+		double[] histogram = workspace.getHistogram(automaton.getStateNumber()); 
+		if(this.laneCounter != null && supportsAlphabet(automaton)) { 
+			this.laneCounter.count(automaton, histogram); 
+		} else { 
+			this.counter.count(automaton, histogram); 
+		}
+		return score(solution, automaton, histogram, workspace.key); 
+	}
+
+
+	/**
+	 * Evaluates a solution, giving up as soon as it is clear that the evaluation 
+	 * can not be better (lower) than <code>bound</code>. 
+	 * The words are tested starting from the ones most often failed by the 
+	 * solutions evaluated earlier on the same thread, so the worse solutions 
+	 * are usually rejected after a small part of the word set. 
+	 * If the evaluation is interrupted, the solution gets a partial evaluation: 
+	 * the ratio of the errors found so far, which is a lower bound of the exact 
+	 * evaluation and is not lower than <code>bound</code>. 
+	 * In the optimal acceptance mode, the errors found so far are the errors 
+	 * of the best acceptance for the words tested so far, which can only grow 
+	 * with more words. 
+	 * 
+	 * @param solution solution to evaluate 
+	 * @param bound evaluation the solution needs to improve on 
+	 * @return exact evaluation if it is lower than <code>bound</code>, 
+	 * 			partial evaluation not lower than <code>bound</code> otherwise
+	 */
+	public double evaluate(Solution solution, double bound) { 
+		if(!hasWords()) { 
+			return evaluate(solution); 
+		}
+		Workspace workspace = this.workspaces.get(); 
+		DiscreteAutomaton automaton = workspace.load(solution); 
+		if(evaluateCached(solution, automaton, workspace.key)) { 
+			return solution.getEvaluation(); 
+		}
+		long limit = (long) Math.ceil(bound * this.words.length); 
+		int[] order = workspace.getOrder(); 
+		double[] histogram = workspace.getHistogram(automaton.getStateNumber()); 
 		long errors = 0; 
-		for(List<Integer> acceptableWord: wordSet.getAccepted()) { 
-			ComputeResults results = computer.compute(acceptableWord); 
-			if(!results.isAccepted()) { 
-				errors++; 
-			} 
-		} 
-		for(List<Integer> unAcceptableWord: wordSet.getNonAccepted()) { 
-			ComputeResults results = computer.compute(unAcceptableWord); 
-			if(results.isAccepted()) { 
+		for(int i = 0; i < order.length; i++) { 
+			int word = order[i]; 
+			workspace.tests[word]++; 
+			int finalState = automaton.run(this.words[word]); 
+			int index = 2 * finalState + (this.labels[word] ? 1 : 0); 
+			boolean failed; 
+			if(this.optimalAcceptance) { 
+				// the best acceptance errs on the smaller of the two counts
+				failed = histogram[index] < histogram[index ^ 1]; 
+			} else { 
+				failed = automaton.isAccepted(finalState) != this.labels[word]; 
+			}
+			histogram[index]++; 
+			if(failed) { 
+				workspace.failures[word]++; 
 				errors++; 
+				if(errors >= limit) { 
+					double partial = ((double) errors)/((double) this.words.length); 
+					solution.setPartialEvaluation(partial); 
+					return partial; 
+				}
 			} 
-		} 
-		double evaluation = ((double) errors)/((double) wordSet.size()); 
+		}
+		return score(solution, automaton, histogram, workspace.key); 
+	}
+
+
+	/**
+	 * Evaluates a solution, reusing the trace of the previous evaluation of the 
+	 * same candidate. Only the trie nodes reached through the transitions that 
+	 * have changed since the trace was recorded (and their subtrees, as far as 
+	 * the reached states change) are re-run, so the cost follows the size of 
+	 * the change rather than the size of the word set. The evaluation is exact 
+	 * and the trace is updated to the solution. 
+	 * 
+	 * @param solution solution to evaluate 
+	 * @param trace trace of the previous evaluation of the candidate, 
+	 * 			created with <code>createTrace</code>
+	 * @return ratio of correctly accepted words 
+	 */
+	public double evaluate(Solution solution, EvaluationTrace trace) { 
+		if(!hasWords()) { 
+			return evaluate(solution); 
+		}
+		Workspace workspace = this.workspaces.get(); 
+		DiscreteAutomaton automaton = workspace.load(solution); 
+		if(evaluateCached(solution, automaton, workspace.key)) { 
+			// the trace keeps the table it was recorded for, the next update catches up
+			return solution.getEvaluation(); 
+		}
+		WordTrie trie = getTrie(); 
+		try { 
+			if(!trace.matches(automaton)
+					|| !updateTrace(trie, trace, automaton, workspace.getDirty(trie.getNodeCount()))) { 
+				rebuildTrace(trie, trace, automaton); 
+			}
+		} catch(IllegalStateException e) { 
+			trace.invalidate(); 
+			throw e; 
+		}
+		return score(solution, automaton, trace.histogram, workspace.key); 
+	}
+
+
+	/**
+	 * Evaluates several solutions in a single walk over the word trie. The solutions 
+	 * are split into tiles whose transition tables fit together in the cache, and 
+	 * the candidates of a tile are advanced in lockstep, one trie node at a time, 
+	 * so the words are read once per tile rather than once per solution 
+	 * (see <code>LockstepCounter</code>). A mapped word set is read in a single 
+	 * pass over its files instead. The evaluations are exact and equal to 
+	 * <code>evaluate(Solution)</code>. 
+	 * 
+	 * @param solutions solutions to evaluate 
+	 * @return evaluations of the solutions, in the list order 
+	 */
+	public double[] evaluate(List<Solution> solutions) { 
+		Workspace workspace = this.workspaces.get(); 
+		double[] evaluations = new double[solutions.size()]; 
+		HistogramCounter counter = hasWords() ? getLockstep() : this.counter; 
+		int[] pending = workspace.getBatchIndexes(solutions.size()); 
+		int count = 0; 
+		for(int i = 0; i < solutions.size(); i++) { 
+			Solution solution = solutions.get(i); 
+			DiscreteAutomaton automaton = workspace.getBatchAutomaton(count); 
+			solution.discretiseTo(automaton); 
+			if(evaluateCached(solution, automaton, workspace.key)) { 
+				evaluations[i] = solution.getEvaluation(); 
+			} else if(hasWords() && !supportsAlphabet(automaton)) { 
+				// reports the unsupported input like a single evaluation
+				evaluations[i] = evaluate(solution); 
+			} else { 
+				pending[count++] = i; 
+			}
+		}
+		double[][] histograms = workspace.getBatchHistograms(count); 
+		counter.count(workspace.batch, count, histograms); 
+		for(int k = 0; k < count; k++) { 
+			DiscreteAutomaton automaton = workspace.getBatchAutomaton(k); 
+			if(this.cache != null) { 
+				workspace.key.canonicalise(automaton, !this.optimalAcceptance); 
+			}
+			evaluations[pending[k]] = score(solutions.get(pending[k]), automaton, histograms[k], workspace.key); 
+		}
+		return evaluations; 
+	}
+
+
+	/**
+	 * Derives the evaluation of a solution from its final state histogram, 
+	 * choosing the acceptance of the states in the optimal acceptance mode, 
+	 * and stores it in the cache 
+	 * 
+	 * @param solution evaluated solution 
+	 * @param automaton discretised solution 
+	 * @param histogram number of non accepted (even indexes) and accepted 
+	 * 			(odd indexes) words ending in each state
+	 * @param key canonical form of the solution, computed if the cache is enabled 
+	 * @return ratio of correctly accepted words 
+	 */
+	private double score(Solution solution, DiscreteAutomaton automaton, double[] histogram, FitnessCache.Key key) { 
+		double errors; 
+		if(this.optimalAcceptance) { 
+			errors = assignAcceptance(solution, automaton, histogram); 
+		} else { 
+			errors = countErrors(automaton, histogram); 
+		}
+		double evaluation = errors / this.counter.size(); 
 		solution.setEvaluation(evaluation); 
+		store(key, evaluation, this.optimalAcceptance ? histogram : null); 
 		return evaluation; 
 	}
 
@@ -82,26 +435,828 @@ public class Evaluator {
 		if(solution == null) { 
 			return null; 
 		}
+		if(this.exhaustive != null) { 
+			throw new UnsupportedOperationException("The words of an exhaustive sample are not enumerated"); 
+		}
 		List<List<Integer>> failed = new ArrayList<List<Integer>>();  
-		DFA toEvaluate = DFAFactory.convertFromSolution(solution); 
-		DFAComputer computer = new DFAComputer(toEvaluate); 
-		long errors = 0; 
-		for(List<Integer> acceptableWord: wordSet.getAccepted()) { 
-			ComputeResults results = computer.compute(acceptableWord); 
-			if(!results.isAccepted()) { 
-				failed.add(acceptableWord); 
-				errors++; 
-			} 
-		} 
-		for(List<Integer> unAcceptableWord: wordSet.getNonAccepted()) { 
-			ComputeResults results = computer.compute(unAcceptableWord); 
-			if(results.isAccepted()) { 
-				failed.add(unAcceptableWord); 
-				errors++; 
+		for(int index: findFailedWords(solution)) { 
+			failed.add(getWord(index)); 
+		}
+		return failed; 
+	}
+
+
+	/**
+	 * Evaluates the solution and returns the indexes of the incorrectly accepted 
+	 * words (see <code>getWord</code>). 
+	 * 
+	 * @param solution solution to evaluate 
+	 * @return indexes of the incorrectly evaluated words, in increasing order 
+	 */
+	public int[] findFailedWords(Solution solution) { 
+		if(this.exhaustive != null) { 
+			throw new UnsupportedOperationException("The words of an exhaustive sample are not enumerated"); 
+		}
+		Workspace workspace = this.workspaces.get(); 
+		DiscreteAutomaton automaton = workspace.load(solution); 
+		int size = size(); 
+		if(this.optimalAcceptance) { 
+			double[] histogram = workspace.getHistogram(automaton.getStateNumber()); 
+			this.counter.count(automaton, histogram); 
+			assignAcceptance(solution, automaton, histogram); 
+		}
+		int[] failed = new int[16]; 
+		int errors = 0; 
+		for(int i = 0; i < size; i++) { 
+			if(automaton.isAccepted(runWord(automaton, i)) != isAccepted(i)) { 
+				if(errors == failed.length) { 
+					failed = Arrays.copyOf(failed, 2 * errors); 
+				}
+				failed[errors++] = i; 
 			} 
 		} 
-		double evaluation = ((double) errors)/((double) wordSet.size()); 
+		double evaluation = ((double) errors)/((double) size); 
 		solution.setEvaluation(evaluation); 
-		return failed; 
+		return Arrays.copyOf(failed, errors); 
+	}
+
+
+	/**
+	 * Creates an evaluator of a part of the words of this evaluator, with the same 
+	 * modes, pool and cache capacity. The words are shared, not copied, except 
+	 * for the words of a <code>MappedWordSet</code> which are loaded into the heap. 
+	 * 
+	 * @param indexes indexes of the words to keep (see <code>getWord</code>) 
+	 * @return evaluator of the chosen words 
+	 */
+	public Evaluator subset(int[] indexes) { 
+		if(this.exhaustive != null) { 
+			throw new UnsupportedOperationException("The words of an exhaustive sample are not enumerated"); 
+		}
+		int[][] words = new int[indexes.length][]; 
+		boolean[] labels = new boolean[indexes.length]; 
+		for(int i = 0; i < indexes.length; i++) { 
+			words[i] = this.mapped != null ? this.mapped.getWord(indexes[i]) : this.words[indexes[i]]; 
+			labels[i] = isAccepted(indexes[i]); 
+		}
+		Evaluator subset = new Evaluator(words, labels); 
+		subset.setOptimalAcceptance(this.optimalAcceptance); 
+		subset.setDeltaEvaluation(this.deltaEvaluation); 
+		subset.setLaneEvaluation(this.laneEvaluation); 
+		subset.setPool(this.pool); 
+		if(this.cache != null) { 
+			subset.setCache(new FitnessCache(this.cache.getCapacity())); 
+		}
+		return subset; 
+	}
+
+
+	/**
+	 * @return the number of words, at most <code>Integer.MAX_VALUE</code> for 
+	 * a <code>MappedWordSet</code>: the words past it are counted by the 
+	 * evaluations, but not reached by the methods taking a word index 
+	 */
+	public int size() { 
+		return this.mapped != null ? (int) Math.min(this.mapped.size(), Integer.MAX_VALUE) : this.words.length; 
+	}
+
+
+	/**
+	 * Gets a word, the accepted words going first for an evaluator created 
+	 * from a word set 
+	 * 
+	 * @param index word index 
+	 * @return word, as a list of inputs 
+	 */
+	public List<Integer> getWord(int index) { 
+		return toList(this.mapped != null ? this.mapped.getWord(index) : this.words[index]); 
+	}
+
+
+	/**
+	 * @param index word index 
+	 * @return the length of the word 
+	 */
+	public int getWordLength(int index) { 
+		return this.mapped != null ? this.mapped.getLength(index) : this.words[index].length; 
+	}
+
+
+	/**
+	 * @param index word index 
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean isAccepted(int index) { 
+		return this.mapped != null ? this.mapped.isAccepted(index) : this.labels[index]; 
+	}
+
+
+	/**
+	 * Runs a word from the initial state 
+	 * 
+	 * @return zero based index of the final state 
+	 */
+	private int runWord(DiscreteAutomaton automaton, int index) { 
+		if(this.mapped != null) { 
+			return this.mappedCounter.run(automaton, index); 
+		}
+		return automaton.run(this.words[index]); 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the words are loaded into <code>words</code>, 
+	 * 			which the bounded, delta and lockstep evaluations run
+	 */
+	private boolean hasWords() { 
+		return this.wordCounter != null; 
+	}
+
+
+	/**
+	 * @return the exhaustive sample of this evaluator, <code>null</code> if 
+	 * 			it is based on a word set
+	 */
+	public ExhaustiveSample getExhaustiveSample() { 
+		return this.exhaustive; 
+	}
+
+
+	/**
+	 * Checks the optimal acceptance mode 
+	 * 
+	 * @return <code>true</code> if the accepted states of the evaluated 
+	 * 			solutions are assigned by the evaluator
+	 */
+	public boolean isOptimalAcceptance() { 
+		return this.optimalAcceptance; 
+	}
+
+
+	/**
+	 * Sets the optimal acceptance mode. In this mode only the transitions of 
+	 * the evaluated solutions are used. For each state, the evaluator counts 
+	 * the accepted and non accepted words ending in that state and makes the 
+	 * state accepted if the accepted words are the majority, which gives 
+	 * the lowest possible evaluation for the transitions. The chosen 
+	 * acceptance is written back into the solution (as 0 or 1). 
+	 * 
+	 * @param optimalAcceptance <code>true</code> to enable the optimal acceptance mode 
+	 */
+	public void setOptimalAcceptance(boolean optimalAcceptance) { 
+		this.optimalAcceptance = optimalAcceptance; 
+		if(this.cache != null) { 
+			this.cache.clear(); 
+		}
+	}
+
+
+	/**
+	 * @return the fitness cache, <code>null</code> if the evaluations are not cached 
+	 */
+	public FitnessCache getCache() { 
+		return this.cache; 
+	}
+
+
+	/**
+	 * Sets the fitness cache. The cached evaluations are only valid for the word set 
+	 * and the acceptance mode of this evaluator, so a cache should not be shared 
+	 * between evaluators. 
+	 * 
+	 * @param cache cache of the exact evaluations, <code>null</code> to disable caching 
+	 */
+	public void setCache(FitnessCache cache) { 
+		this.cache = cache; 
+	}
+
+
+	/**
+	 * Checks the delta evaluation mode 
+	 * 
+	 * @return <code>true</code> if the candidates should be evaluated 
+	 * 			with <code>evaluate(Solution, EvaluationTrace)</code>
+	 */
+	public boolean isDeltaEvaluation() { 
+		return this.deltaEvaluation; 
+	}
+
+
+	/**
+	 * Sets the delta evaluation mode, in which the candidates keep an 
+	 * <code>EvaluationTrace</code> of their last evaluation. Each trace needs 
+	 * about 16 bytes per trie node. 
+	 * 
+	 * @param deltaEvaluation <code>true</code> to enable the delta evaluations 
+	 */
+	public void setDeltaEvaluation(boolean deltaEvaluation) { 
+		this.deltaEvaluation = deltaEvaluation; 
+		if(deltaEvaluation) { 
+			getTrie(); 
+		}
+	}
+
+
+	/**
+	 * @return the pool the full evaluations are sharded on, <code>null</code> if none 
+	 */
+	public ForkJoinPool getPool() { 
+		return this.pool; 
+	}
+
+
+	/**
+	 * Sets the pool used to shard the full evaluations (<code>evaluate(Solution)</code>). 
+	 * The words are split into shards of about the same total length, the final 
+	 * state histogram of each shard is computed by a separate task and the 
+	 * histograms are summed up. Word sets too small to be worth splitting are 
+	 * still evaluated on the calling thread. So are the evaluations called from 
+	 * the threads of the same pool, e.g. the particles evaluated in parallel, 
+	 * which already keep the pool busy (see <code>ShardedCounter</code>). 
+	 * 
+	 * @param pool pool to run the shards on, <code>null</code> to disable the sharding 
+	 */
+	public void setPool(ForkJoinPool pool) { 
+		this.pool = pool; 
+		if(hasWords()) { 
+			this.counter = ShardedCounter.shard(this.wordCounter, pool); 
+		}
+		updateLaneCounter(); 
+	}
+
+
+	/**
+	 * Checks the lane evaluation mode 
+	 * 
+	 * @return <code>true</code> if the full evaluations run the words in interleaved blocks 
+	 */
+	public boolean isLaneEvaluation() { 
+		return this.laneEvaluation; 
+	}
+
+
+	/**
+	 * Sets the lane evaluation mode, in which the full evaluations 
+	 * (<code>evaluate(Solution)</code>) run blocks of words together 
+	 * (see <code>WordLanes</code>). Solutions missing a transition for an input 
+	 * of the words keep the word by word path. With a pool (<code>setPool</code>), 
+	 * the blocks are sharded like the words and each shard runs the lane kernel. 
+	 * The interleaved words take about as much memory as the words themselves. 
+	 * 
+	 * @param laneEvaluation <code>true</code> to enable the lane evaluations 
+	 */
+	public void setLaneEvaluation(boolean laneEvaluation) { 
+		this.laneEvaluation = laneEvaluation; 
+		updateLaneCounter(); 
+	}
+
+
+	/**
+	 * Creates an empty trace for the delta evaluations of a candidate 
+	 * 
+	 * @return new trace 
+	 */
+	public EvaluationTrace createTrace() { 
+		return new EvaluationTrace(getTrie().getNodeCount()); 
+	}
+
+
+	/**
+	 * Gets the prefix tree of the words, building it on the first call 
+	 * 
+	 * @return word trie 
+	 */
+	private synchronized WordTrie getTrie() { 
+		if(this.trie == null) { 
+			this.trie = new WordTrie(this.words, this.labels); 
+		}
+		return this.trie; 
+	}
+
+
+	/**
+	 * Gets the words interleaved in blocks, building them on the first call 
+	 * 
+	 * @return interleaved words 
+	 */
+	private synchronized WordLanes getLanes() { 
+		if(this.lanes == null) { 
+			this.lanes = new WordLanes(this.words, this.labels); 
+		}
+		return this.lanes; 
+	}
+
+
+	/**
+	 * Sets the counter of the lane evaluations, sharded on the pool, 
+	 * for the evaluators of enumerated words in the lane mode 
+	 */
+	private void updateLaneCounter() { 
+		if(this.laneEvaluation && hasWords()) { 
+			this.laneCounter = ShardedCounter.shard(getLanes(), this.pool); 
+		} else { 
+			this.laneCounter = null; 
+		}
+	}
+
+
+	/**
+	 * Gets the counter of the lockstep evaluations, building it on the first call 
+	 * 
+	 * @return lockstep counter 
+	 */
+	private synchronized LockstepCounter getLockstep() { 
+		if(this.lockstep == null) { 
+			this.lockstep = new LockstepCounter(getTrie()); 
+		}
+		return this.lockstep; 
+	}
+
+
+	/**
+	 * Runs the entire trie, recording the trace from scratch 
+	 * 
+	 * @param trie word trie 
+	 * @param trace trace to record 
+	 * @param automaton discretised candidate 
+	 */
+	private void rebuildTrace(WordTrie trie, EvaluationTrace trace, DiscreteAutomaton automaton) { 
+		trace.reset(automaton); 
+		int[] table = automaton.getTable(); 
+		int stride = automaton.getStride(); 
+		trace.moveEnds(trie, 0, -1, 0); 
+		for(int node = 1; node < trie.nodeCount; node++) { 
+			int input = trie.input[node]; 
+			int cell = trace.nodeState[trie.parent[node]] * stride + input; 
+			int state = input < stride ? table[cell] : -1; 
+			if(state < 0) { 
+				throw new IllegalStateException("The current input is not supported by this automaton, input: "+input); 
+			}
+			trace.nodeState[node] = state; 
+			trace.link(node, cell); 
+			trace.moveEnds(trie, node, -1, state); 
+		}
+	}
+
+
+	/**
+	 * Updates the trace to a changed automaton of the same shape. The nodes 
+	 * reached through the changed transitions are marked, then the marked nodes 
+	 * are re-run in the node order, marking the children of each node whose 
+	 * state has changed. Since the children follow their parents in the node 
+	 * order, a single pass over the marks is enough. 
+	 * If the changed transitions lead to at least half of the trie, the update 
+	 * is abandoned, since re-running the entire trie is cheaper. 
+	 * 
+	 * @param trie word trie 
+	 * @param trace trace to update 
+	 * @param automaton discretised candidate 
+	 * @param dirty cleared set of nodes to re-run 
+	 * @return <code>false</code> if the update was abandoned and the trace needs to be rebuilt 
+	 */
+	private boolean updateTrace(WordTrie trie, EvaluationTrace trace, DiscreteAutomaton automaton, BitSet dirty) { 
+		int[] table = automaton.getTable(); 
+		int stride = automaton.getStride(); 
+		int cells = trace.stateNumber * stride; 
+		long affected = 0; 
+		for(int cell = 0; cell < cells; cell++) { 
+			if(table[cell] != trace.table[cell]) { 
+				trace.table[cell] = table[cell]; 
+				for(int node = trace.cellHead[cell]; node >= 0; node = trace.nextNode[node]) { 
+					dirty.set(node); 
+					affected += trie.subtreeEnd[node] - node; 
+				}
+				if(2 * affected >= trie.nodeCount) { 
+					return false; 
+				}
+			}
+		}
+		for(int node = dirty.nextSetBit(0); node >= 0; node = dirty.nextSetBit(node + 1)) { 
+			dirty.clear(node); 
+			int cell = trace.nodeState[trie.parent[node]] * stride + trie.input[node]; 
+			if(cell != trace.nodeCell[node]) { 
+				trace.unlink(node); 
+				trace.link(node, cell); 
+			}
+			int state = table[cell]; 
+			if(state < 0) { 
+				throw new IllegalStateException("The current input is not supported by this automaton, input: "+trie.input[node]); 
+			}
+			if(state != trace.nodeState[node]) { 
+				trace.moveEnds(trie, node, trace.nodeState[node], state); 
+				trace.nodeState[node] = state; 
+				int end = trie.subtreeEnd[node]; 
+				for(int child = node + 1; child < end; child = trie.subtreeEnd[child]) { 
+					dirty.set(child); 
+				}
+			}
+		}
+		return true; 
+	}
+
+
+	/**
+	 * Looks up the evaluation of a solution in the cache. In the optimal acceptance 
+	 * mode the key is made of the transitions only and the cached acceptance of the 
+	 * reachable states is written back into the solution. 
+	 * 
+	 * @param solution solution to evaluate 
+	 * @param automaton discretised solution 
+	 * @param key scratch key, left holding the canonical form of the solution 
+	 * @return <code>true</code> if the solution got its evaluation from the cache 
+	 */
+	private boolean evaluateCached(Solution solution, DiscreteAutomaton automaton, FitnessCache.Key key) { 
+		if(this.cache == null) { 
+			return false; 
+		}
+		key.canonicalise(automaton, !this.optimalAcceptance); 
+		FitnessCache.Entry entry = this.cache.get(key); 
+		if(entry == null) { 
+			return false; 
+		}
+		if(entry.acceptance != null) { 
+			for(int i = 0; i < key.reachable; i++) { 
+				if(entry.acceptance[i] > 0) { 
+					solution.setAccepted(key.order[i] + 1, ACCEPTED); 
+				} else if(entry.acceptance[i] < 0) { 
+					solution.setAccepted(key.order[i] + 1, NOT_ACCEPTED); 
+				}
+			}
+		}
+		solution.setEvaluation(entry.evaluation); 
+		return true; 
+	}
+
+
+	/**
+	 * Stores an exact evaluation in the cache 
+	 * 
+	 * @param key canonical form computed by <code>evaluateCached</code> 
+	 * @param evaluation exact evaluation 
+	 * @param histogram final state histogram the acceptance was chosen from, 
+	 * 			<code>null</code> outside of the optimal acceptance mode
+	 */
+	private void store(FitnessCache.Key key, double evaluation, double[] histogram) { 
+		if(this.cache == null) { 
+			return; 
+		}
+		byte[] acceptance = null; 
+		if(histogram != null) { 
+			acceptance = new byte[key.reachable]; 
+			for(int i = 0; i < key.reachable; i++) { 
+				int state = key.order[i]; 
+				acceptance[i] = (byte) Math.signum(histogram[2 * state + 1] - histogram[2 * state]); 
+			}
+		}
+		this.cache.put(key.copy(), new FitnessCache.Entry(evaluation, acceptance)); 
+	}
+
+
+	/**
+	 * Checks that an automaton has a transition for each input used by the words 
+	 * 
+	 * @param automaton discretised solution 
+	 * @return <code>true</code> if no word can reach an unsupported transition 
+	 */
+	private boolean supportsAlphabet(DiscreteAutomaton automaton) { 
+		int stride = automaton.getStride(); 
+		int[] table = automaton.getTable(); 
+		for(int input: this.alphabet) { 
+			if(input < 0 || input >= stride) { 
+				return false; 
+			}
+			for(int state = 0; state < automaton.getStateNumber(); state++) { 
+				if(table[state * stride + input] < 0) { 
+					return false; 
+				}
+			}
+		}
+		return true; 
+	}
+
+
+	/**
+	 * Counts the errors of the automaton's acceptance from the final state histogram 
+	 * 
+	 * @param automaton discretised solution 
+	 * @param histogram number of non accepted (even indexes) and accepted 
+	 * 			(odd indexes) words ending in each state
+	 * @return number of errors 
+	 */
+	private double countErrors(DiscreteAutomaton automaton, double[] histogram) { 
+		double errors = 0; 
+		for(int state = 0; state < automaton.getStateNumber(); state++) { 
+			errors += histogram[2 * state + (automaton.isAccepted(state) ? 0 : 1)]; 
+		}
+		return errors; 
+	}
+
+
+	/**
+	 * Chooses the acceptance of each state from the final state histogram, 
+	 * updating both the solution and its discretised form. States with as many 
+	 * accepted as non accepted words (including unused states) are not changed. 
+	 * 
+	 * @param solution evaluated solution 
+	 * @param automaton discretised solution 
+	 * @param histogram number of non accepted (even indexes) and accepted 
+	 * 			(odd indexes) words ending in each state
+	 * @return number of errors for the chosen acceptance 
+	 */
+	private double assignAcceptance(Solution solution, DiscreteAutomaton automaton, double[] histogram) { 
+		double errors = 0; 
+		for(int state = 0; state < automaton.getStateNumber(); state++) { 
+			double nonAccepted = histogram[2 * state]; 
+			double accepted = histogram[2 * state + 1]; 
+			if(accepted > nonAccepted) { 
+				solution.setAccepted(state + 1, ACCEPTED); 
+				automaton.setAccepted(state, true); 
+			} else if(nonAccepted > accepted) { 
+				solution.setAccepted(state + 1, NOT_ACCEPTED); 
+				automaton.setAccepted(state, false); 
+			}
+			errors += Math.min(accepted, nonAccepted); 
+		}
+		return errors; 
+	}
+
+
+	/**
+	 * Copies the words of the word set into arrays, accepted words first 
+	 */
+	private void loadWords() { 
+		int size = (int) this.wordSet.size(); 
+		this.words = new int[size][]; 
+		this.labels = new boolean[size]; 
+		int index = 0; 
+		for(int pass = 0; pass < 2; pass++) { 
+			boolean isAccepted = pass == 0; 
+			for(int i = 0; i < size; i++) { 
+				if(this.wordSet.isAccepted(i) == isAccepted) { 
+					this.words[index] = this.wordSet.getWord(i); 
+					this.labels[index] = isAccepted; 
+					index++; 
+				}
+			}
+		}
+		loadAlphabet(); 
+		this.wordCounter = new WordCounter(this.words, this.labels); 
+		this.counter = this.wordCounter; 
+	}
+
+
+	/**
+	 * Collects the inputs used by the words 
+	 */
+	private void loadAlphabet() { 
+		SortedSet<Integer> inputs = new TreeSet<Integer>(); 
+		for(int[] word: this.words) { 
+			for(int input: word) { 
+				inputs.add(input); 
+			}
+		}
+		this.alphabet = new int[inputs.size()]; 
+		int index = 0; 
+		for(Integer input: inputs) { 
+			this.alphabet[index++] = input; 
+		}
+	}
+
+
+	private static List<Integer> toList(int[] word) { 
+		List<Integer> list = new ArrayList<Integer>(word.length); 
+		for(int input: word) { 
+			list.add(input); 
+		}
+		return list; 
+	}
+
+
+	@Override
+	public String toString() { 
+		HistogramCounter counter = this.laneCounter != null ? this.laneCounter : this.counter; 
+		return "Evaluator ("+(long) this.counter.size()+" words, "
+				+(this.optimalAcceptance ? "optimal acceptance, " : "")
+				+(this.deltaEvaluation ? "delta evaluation, " : "")
+				+(this.cache != null ? "cache of "+this.cache.getCapacity()+" entries, " : "")
+				+(this.pool != null ? this.pool.getParallelism()+" threads" : "1 thread")+"). "+counter; 
+	}
+
+
+	/**
+	 * Per thread scratch space: the discretised solution and the 
+	 * statistics of the word failures used to order bounded evaluations. 
+	 */
+	private static class Workspace { 
+
+		/**
+		 * Discretised solution 
+		 */
+		DiscreteAutomaton automaton; 
+
+		/**
+		 * Order in which the words are tested by bounded evaluations 
+		 */
+		int[] order; 
+
+		/**
+		 * Number of times each word was tested 
+		 */
+		int[] tests; 
+
+		/**
+		 * Number of times each word was failed 
+		 */
+		int[] failures; 
+
+		/**
+		 * Sort keys, (rank, word) packed into a <code>long</code> 
+		 */
+		long[] keys; 
+
+		/**
+		 * Number of bounded evaluations done with this workspace 
+		 */
+		int evaluations; 
+
+		/**
+		 * Final state histogram, non accepted and accepted words per state 
+		 */
+		double[] histogram; 
+
+		/**
+		 * Trie nodes to re-run by a delta evaluation 
+		 */
+		BitSet dirty; 
+
+		/**
+		 * Automata of a batch evaluation 
+		 */
+		List<DiscreteAutomaton> batch; 
+
+		/**
+		 * Indexes of the solutions of a batch evaluation left to evaluate 
+		 */
+		int[] batchIndexes; 
+
+		/**
+		 * Final state histograms of a batch evaluation 
+		 */
+		double[][] batchHistograms; 
+
+		/**
+		 * Canonical form of the last solution looked up in the fitness cache 
+		 */
+		FitnessCache.Key key; 
+
+
+		Workspace(int size) { 
+			this.automaton = new DiscreteAutomaton(); 
+			this.histogram = new double[0]; 
+			this.batch = new ArrayList<DiscreteAutomaton>(); 
+			this.batchIndexes = new int[0]; 
+			this.batchHistograms = new double[0][]; 
+			this.dirty = new BitSet(); 
+			this.key = new FitnessCache.Key(); 
+			this.order = new int[size]; 
+			this.tests = new int[size]; 
+			this.failures = new int[size]; 
+			this.keys = new long[size]; 
+			for(int i = 0; i < size; i++) { 
+				this.order[i] = i; 
+			}
+		}
+
+
+		/**
+		 * Discretises a solution into the automaton of this workspace 
+		 * 
+		 * @param solution solution to discretise 
+		 * @return discretised solution, overwritten by the next call 
+		 */
+		DiscreteAutomaton load(Solution solution) { 
+			solution.discretiseTo(this.automaton); 
+			return this.automaton; 
+		}
+
+
+		/**
+		 * Gets the cleared final state histogram 
+		 * 
+		 * @param stateNumber number of states 
+		 * @return histogram with two counters per state 
+		 */
+		double[] getHistogram(int stateNumber) { 
+			if(this.histogram.length < 2 * stateNumber) { 
+				this.histogram = new double[2 * stateNumber]; 
+			}
+			Arrays.fill(this.histogram, 0, 2 * stateNumber, 0); 
+			return this.histogram; 
+		}
+
+
+		/**
+		 * Gets an automaton of a batch evaluation, creating it on the first use 
+		 * 
+		 * @param index index within the batch 
+		 * @return automaton to discretise a solution into 
+		 */
+		DiscreteAutomaton getBatchAutomaton(int index) { 
+			while(this.batch.size() <= index) { 
+				this.batch.add(new DiscreteAutomaton()); 
+			}
+			return this.batch.get(index); 
+		}
+
+
+		/**
+		 * @param size number of solutions of a batch 
+		 * @return array for the indexes of the solutions left to evaluate 
+		 */
+		int[] getBatchIndexes(int size) { 
+			this.batchIndexes = ensure(this.batchIndexes, size); 
+			return this.batchIndexes; 
+		}
+
+
+		/**
+		 * Gets the cleared final state histograms of the first automata of the batch 
+		 * 
+		 * @param number number of automata 
+		 * @return histograms with two counters per state of each automaton 
+		 */
+		double[][] getBatchHistograms(int number) { 
+			if(this.batchHistograms.length < number) { 
+				this.batchHistograms = Arrays.copyOf(this.batchHistograms, number); 
+			}
+			for(int k = 0; k < number; k++) { 
+				int counters = 2 * this.batch.get(k).getStateNumber(); 
+				if(this.batchHistograms[k] == null || this.batchHistograms[k].length < counters) { 
+					this.batchHistograms[k] = new double[counters]; 
+				} else { 
+					Arrays.fill(this.batchHistograms[k], 0, counters, 0); 
+				}
+			}
+			return this.batchHistograms; 
+		}
+
+
+		/**
+		 * Grows an array if needed 
+		 * 
+		 * @param array current array 
+		 * @param size required length 
+		 * @return <code>array</code> or a new array if it was too short 
+		 */
+		static int[] ensure(int[] array, int size) { 
+			return array.length < size ? new int[size] : array; 
+		}
+
+
+		/**
+		 * Gets the set of nodes to re-run by a delta evaluation, 
+		 * which is always left cleared after an evaluation 
+		 * 
+		 * @param nodeCount number of trie nodes 
+		 * @return cleared node set 
+		 */
+		BitSet getDirty(int nodeCount) { 
+			this.dirty.clear(); 
+			return this.dirty; 
+		}
+
+
+		/**
+		 * Gets the order of words for the next bounded evaluation, 
+		 * refreshing it every <code>REORDER_INTERVAL</code> evaluations. 
+		 * 
+		 * @return word indexes, most often failed first 
+		 */
+		int[] getOrder() { 
+			this.evaluations++; 
+			if(this.evaluations % REORDER_INTERVAL == 0) { 
+				reorder(); 
+			}
+			return this.order; 
+		}
+
+
+		/**
+		 * Sorts the words by their smoothed failure rate, highest first, 
+		 * and halves the statistics so the order follows the recent solutions. 
+		 */
+		private void reorder() { 
+			for(int i = 0; i < this.order.length; i++) { 
+				double rate = (this.failures[i] + 1.0) / (this.tests[i] + 2.0); 
+				long rank = Integer.MAX_VALUE - (long) (rate * Integer.MAX_VALUE); 
+				this.keys[i] = (rank << 32) | i; 
+				this.tests[i] >>= 1; 
+				this.failures[i] >>= 1; 
+			}
+			Arrays.sort(this.keys); 
+			for(int i = 0; i < this.order.length; i++) { 
+				this.order[i] = (int) this.keys[i]; 
+			}
+		}
 	}
 }
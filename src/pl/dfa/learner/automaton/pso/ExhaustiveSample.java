@@ -0,0 +1,184 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import pl.dfa.learner.automaton.DFA;
+
+
+/**
+ * Sample of all the words of length 1 to <code>maxWordLength</code> over the 
+ * inputs of a reference automaton, labelled by that automaton: the word set 
+ * built by <code>WordSetGenerator.generateWordSet(maxWordLength)</code>, but 
+ * never enumerated. 
+ * 
+ * The final state histogram of a candidate is counted by a dynamic program 
+ * over the product of the reference and the candidate: the number of words 
+ * of each length leading to each pair of states. The cost is 
+ * O(<i>L</i>&middot;<i>m</i>&middot;<i>n</i>&middot;|&Sigma;|) rather than 
+ * O(|&Sigma;|<sup><i>L</i></sup>), for <i>m</i> reference and <i>n</i> 
+ * candidate states. 
+ * 
+ * Counts are kept as <code>double</code> values, which are exact up to 
+ * 2<sup>53</sup> words and accurate to the last bits above that. 
+ * 
+ */
+public class ExhaustiveSample implements HistogramCounter { 
+
+	/**
+	 * Reference automaton, the initial state being the state 0 
+	 */
+	private DiscreteAutomaton reference; 
+
+	/**
+	 * Highest word length 
+	 */
+	private int maxWordLength; 
+
+	/**
+	 * Inputs of the reference automaton, in increasing order 
+	 */
+	private int[] alphabet; 
+
+	/**
+	 * Number of words in the sample 
+	 */
+	private double size; 
+
+	/**
+	 * Word counts per pair of states for the current and the next word length, 
+	 * one pair of arrays per counting thread 
+	 */
+	private ThreadLocal<double[][]> scratch; 
+
+
+	/**
+	 * Creates the sample of a reference automaton 
+	 * 
+	 * @param dfa reference automaton, with a transition for each state and input 
+	 * @param maxWordLength highest word length 
+	 */
+	public ExhaustiveSample(DFA dfa, int maxWordLength) { 
+		if(maxWordLength < 1) { 
+			throw new IllegalArgumentException("The words need to be at least one input long, maxWordLength: "+maxWordLength); 
+		}
+		this.reference = new DiscreteAutomaton(); 
+		this.reference.load(dfa); 
+		this.maxWordLength = maxWordLength; 
+		Set<Integer> inputs = dfa.getInputs(); 
+		this.alphabet = new int[inputs.size()]; 
+		int index = 0; 
+		for(Integer input: inputs) { 
+			this.alphabet[index++] = input; 
+		}
+		for(int state = 0; state < this.reference.getStateNumber(); state++) { 
+			for(int input: this.alphabet) { 
+				if(this.reference.getTable()[state * this.reference.getStride() + input] < 0) { 
+					throw new IllegalArgumentException("The reference automaton needs a transition for each state and input, "
+							+"missing input: "+input); 
+				}
+			}
+		}
+		double words = 1; 
+		for(int length = 1; length <= maxWordLength; length++) { 
+			words *= this.alphabet.length; 
+			this.size += words; 
+		}
+		this.scratch = new ThreadLocal<double[][]>() { 
+			@Override
+			protected double[][] initialValue() { 
+				return new double[2][0]; 
+			}
+		}; 
+	}
+
+
+	/**
+	 * Counts the final states of the sample's words for a candidate 
+	 * 
+	 * @param candidate discretised solution 
+	 * @param histogram cleared histogram, non accepted (even indexes) and 
+	 * 			accepted (odd indexes) words ending in each candidate state
+	 */
+	@Override
+	public void count(DiscreteAutomaton candidate, double[] histogram) { 
+		int m = this.reference.getStateNumber(); 
+		int n = candidate.getStateNumber(); 
+		double[][] scratch = this.scratch.get(); 
+		if(scratch[0].length < m * n) { 
+			scratch = new double[2][m * n]; 
+			this.scratch.set(scratch); 
+		}
+		int referenceStride = this.reference.getStride(); 
+		int candidateStride = candidate.getStride(); 
+		int[] referenceTable = this.reference.getTable(); 
+		int[] candidateTable = candidate.getTable(); 
+		double[] current = scratch[0]; 
+		double[] next = scratch[1]; 
+		Arrays.fill(current, 0, m * n, 0); 
+		current[0] = 1; 
+		for(int length = 1; length <= this.maxWordLength; length++) { 
+			Arrays.fill(next, 0, m * n, 0); 
+			for(int r = 0; r < m; r++) { 
+				for(int c = 0; c < n; c++) { 
+					double words = current[r * n + c]; 
+					if(words == 0) { 
+						continue; 
+					}
+					for(int input: this.alphabet) { 
+						int nextCandidate = input < candidateStride ? candidateTable[c * candidateStride + input] : -1; 
+						if(nextCandidate < 0) { 
+							throw new IllegalStateException("The current input is not supported by this automaton, input: "+input); 
+						}
+						next[referenceTable[r * referenceStride + input] * n + nextCandidate] += words; 
+					}
+				}
+			}
+			for(int r = 0; r < m; r++) { 
+				int label = this.reference.isAccepted(r) ? 1 : 0; 
+				for(int c = 0; c < n; c++) { 
+					histogram[2 * c + label] += next[r * n + c]; 
+				}
+			}
+			double[] swap = current; 
+			current = next; 
+			next = swap; 
+		}
+	}
+
+
+	/**
+	 * @return the number of words in the sample 
+	 */
+	@Override
+	public double size() { 
+		return this.size; 
+	}
+
+
+	/**
+	 * @return the number of states of the reference automaton 
+	 */
+	public int getReferenceStateNumber() { 
+		return this.reference.getStateNumber(); 
+	}
+
+
+	/**
+	 * @return the highest word length 
+	 */
+	public int getMaxWordLength() { 
+		return this.maxWordLength; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "ExhaustiveSample ("+this.alphabet.length+" inputs, lengths 1 to "+this.maxWordLength
+				+", "+this.size+" words). "; 
+	}
+
+}
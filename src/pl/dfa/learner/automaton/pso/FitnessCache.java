@@ -0,0 +1,294 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Least recently used cache of evaluations, shared by all the particles using 
+ * the same <code>Evaluator</code>. Solutions are keyed by the canonical form of 
+ * the reachable part of their discretised automaton: the states are renumbered 
+ * in the breadth first order in which they are reached from the initial state, 
+ * so automata that differ only by the names or the unreachable states share 
+ * a single entry. 
+ * 
+ * The cache is thread safe. 
+ * 
+ */
+public class FitnessCache { 
+
+	/**
+	 * Maximum number of entries 
+	 */
+	private int capacity; 
+
+	/**
+	 * Cached evaluations, in the access order 
+	 */
+	private Map<Key, Entry> entries; 
+
+	/**
+	 * Number of successful look ups 
+	 */
+	private long hits; 
+
+	/**
+	 * Number of failed look ups 
+	 */
+	private long misses; 
+
+
+	/**
+	 * Creates an empty cache 
+	 * 
+	 * @param capacity maximum number of cached evaluations 
+	 */
+	public FitnessCache(final int capacity) { 
+		this.capacity = capacity; 
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) { 
+
+			private static final long serialVersionUID = 1L; 
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, FitnessCache.Entry> eldest) { 
+				return size() > capacity; 
+			}
+		}; 
+	}
+
+
+	/**
+	 * Looks up an evaluation 
+	 * 
+	 * @param key canonical form of a solution 
+	 * @return cached evaluation or <code>null</code> if there is none 
+	 */
+	synchronized Entry get(Key key) { 
+		Entry entry = this.entries.get(key); 
+		if(entry == null) { 
+			this.misses++; 
+		} else { 
+			this.hits++; 
+		}
+		return entry; 
+	}
+
+
+	/**
+	 * Stores an evaluation 
+	 * 
+	 * @param key canonical form of a solution, not modified afterwards 
+	 * @param entry evaluation 
+	 */
+	synchronized void put(Key key, Entry entry) { 
+		this.entries.put(key, entry); 
+	}
+
+
+	/**
+	 * Removes all the cached evaluations, e.g. when the word set changes. 
+	 * The counters are not reset. 
+	 */
+	public synchronized void clear() { 
+		this.entries.clear(); 
+	}
+
+
+	/**
+	 * @return the number of successful look ups 
+	 */
+	public synchronized long getHits() { 
+		return this.hits; 
+	}
+
+
+	/**
+	 * @return the number of failed look ups 
+	 */
+	public synchronized long getMisses() { 
+		return this.misses; 
+	}
+
+
+	/**
+	 * @return the number of cached evaluations 
+	 */
+	public synchronized int size() { 
+		return this.entries.size(); 
+	}
+
+
+	/**
+	 * @return the maximum number of cached evaluations 
+	 */
+	public int getCapacity() { 
+		return this.capacity; 
+	}
+
+
+	@Override
+	public synchronized String toString() { 
+		return "FitnessCache ("+this.entries.size()+"/"+this.capacity+" entries, "
+				+this.hits+" hits, "+this.misses+" misses). "; 
+	}
+
+
+	/**
+	 * Canonical form of a discretised solution. A key is used as a scratch 
+	 * object for look ups and copied before it is stored in the cache. 
+	 */
+	static class Key { 
+
+		/**
+		 * Canonical code: the number of columns, the renumbered transitions of 
+		 * the reachable states and, optionally, their acceptance 
+		 */
+		int[] code; 
+
+		/**
+		 * Used length of the code 
+		 */
+		int length; 
+
+		/**
+		 * 64 bit hash of the code 
+		 */
+		long hash; 
+
+		/**
+		 * Number of reachable states 
+		 */
+		int reachable; 
+
+		/**
+		 * Original state of each canonical state 
+		 */
+		int[] order; 
+
+		/**
+		 * Canonical number of each original state, -1 if the state is not reachable 
+		 */
+		int[] canonical; 
+
+
+		Key() { 
+			this.code = new int[0]; 
+			this.order = new int[0]; 
+			this.canonical = new int[0]; 
+		}
+
+
+		/**
+		 * Computes the canonical form of an automaton 
+		 * 
+		 * @param automaton discretised solution 
+		 * @param withAcceptance <code>true</code> if the acceptance is a part of the key 
+		 */
+		void canonicalise(DiscreteAutomaton automaton, boolean withAcceptance) { 
+			int stateNumber = automaton.getStateNumber(); 
+			int stride = automaton.getStride(); 
+			int[] table = automaton.getTable(); 
+			if(this.canonical.length < stateNumber) { 
+				this.canonical = new int[stateNumber]; 
+				this.order = new int[stateNumber]; 
+			}
+			int maxLength = 1 + stateNumber * (stride + 1); 
+			if(this.code.length < maxLength) { 
+				this.code = new int[maxLength]; 
+			}
+			Arrays.fill(this.canonical, 0, stateNumber, -1); 
+			this.canonical[0] = 0; 
+			this.order[0] = 0; 
+			this.reachable = 1; 
+			this.length = 0; 
+			this.code[this.length++] = stride; 
+			for(int i = 0; i < this.reachable; i++) { 
+				int state = this.order[i]; 
+				for(int input = 0; input < stride; input++) { 
+					int next = table[state * stride + input]; 
+					if(next >= 0 && this.canonical[next] < 0) { 
+						this.canonical[next] = this.reachable; 
+						this.order[this.reachable++] = next; 
+					}
+					this.code[this.length++] = next < 0 ? -1 : this.canonical[next]; 
+				}
+			}
+			if(withAcceptance) { 
+				for(int i = 0; i < this.reachable; i++) { 
+					this.code[this.length++] = automaton.isAccepted(this.order[i]) ? 1 : 0; 
+				}
+			}
+			long h = 0xcbf29ce484222325L; 
+			for(int i = 0; i < this.length; i++) { 
+				h = (h ^ this.code[i]) * 0x100000001b3L; 
+			}
+			this.hash = h ^ (h >>> 29); 
+		}
+
+
+		/**
+		 * @return a copy of this key to store in the cache 
+		 */
+		Key copy() { 
+			Key copy = new Key(); 
+			copy.code = Arrays.copyOf(this.code, this.length); 
+			copy.length = this.length; 
+			copy.hash = this.hash; 
+			copy.reachable = this.reachable; 
+			return copy; 
+		}
+
+
+		@Override
+		public int hashCode() { 
+			return (int) (this.hash ^ (this.hash >>> 32)); 
+		}
+
+
+		@Override
+		public boolean equals(Object obj) { 
+			if(!(obj instanceof Key)) { 
+				return false; 
+			}
+			Key other = (Key) obj; 
+			if(other.hash != this.hash || other.length != this.length) { 
+				return false; 
+			}
+			for(int i = 0; i < this.length; i++) { 
+				if(other.code[i] != this.code[i]) { 
+					return false; 
+				}
+			}
+			return true; 
+		}
+	}
+
+
+	/**
+	 * Cached evaluation 
+	 */
+	static class Entry { 
+
+		/**
+		 * Exact evaluation 
+		 */
+		double evaluation; 
+
+		/**
+		 * Acceptance chosen in the optimal acceptance mode for each canonical state: 
+		 * 1 for accepted, -1 for not accepted, 0 for unchanged; <code>null</code> 
+		 * if the acceptance was not assigned by the evaluator 
+		 */
+		byte[] acceptance; 
+
+
+		Entry(double evaluation, byte[] acceptance) { 
+			this.evaluation = evaluation; 
+			this.acceptance = acceptance; 
+		}
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import pl.dfa.learner.automaton.DFA;
+
+
+/**
+ * Exact generalisation of a learned automaton: the fraction of the words of 
+ * each length on which it disagrees with a reference automaton, over all the 
+ * words rather than a sample of test words. 
+ * 
+ * The fractions are counted by a dynamic program over the product of the 
+ * reference and the learned automaton, like in <code>ExhaustiveSample</code>: 
+ * the share of the words of each length leading to each pair of states. Shares 
+ * rather than numbers of words are kept, so lengths like 1000 do not overflow. 
+ * The cost is O(<i>L</i>&middot;<i>m</i>&middot;<i>n</i>&middot;|&Sigma;|) for 
+ * <i>m</i> reference and <i>n</i> learned states. A transition missing from an 
+ * automaton leads to a rejecting sink state, like in <code>Equivalence</code>. 
+ * 
+ */
+public class Generalisation { 
+
+	/**
+	 * Reference automaton, the initial state being the state 0 
+	 */
+	private DiscreteAutomaton reference; 
+
+	/**
+	 * Inputs of the compared words, in increasing order 
+	 */
+	private int[] alphabet; 
+
+
+	/**
+	 * Creates the analysis for a reference automaton, over its inputs 
+	 * 
+	 * @param dfa reference automaton 
+	 */
+	public Generalisation(DFA dfa) { 
+		this.reference = new DiscreteAutomaton(); 
+		this.reference.load(dfa); 
+		Set<Integer> inputs = dfa.getInputs(); 
+		this.alphabet = new int[inputs.size()]; 
+		int index = 0; 
+		for(Integer input: inputs) { 
+			this.alphabet[index++] = input; 
+		}
+	}
+
+
+	/**
+	 * Computes the generalisation curve of a solution 
+	 * 
+	 * @param solution learned solution 
+	 * @param maxWordLength highest word length 
+	 * @return fraction of the words of each length, 0 to <code>maxWordLength</code>, 
+	 * 			classified differently by the solution and the reference
+	 */
+	public double[] computeDisagreement(Solution solution, int maxWordLength) { 
+		DiscreteAutomaton candidate = new DiscreteAutomaton(); 
+		solution.discretiseTo(candidate); 
+		return computeDisagreement(candidate, maxWordLength); 
+	}
+
+
+	/**
+	 * Computes the generalisation curve of a discretised automaton 
+	 * 
+	 * @param candidate learned automaton 
+	 * @param maxWordLength highest word length 
+	 * @return fraction of the words of each length, 0 to <code>maxWordLength</code>, 
+	 * 			classified differently by the candidate and the reference; the
+	 * 			first fraction is 0 or 1, for the empty word
+	 */
+	public double[] computeDisagreement(DiscreteAutomaton candidate, int maxWordLength) { 
+		if(maxWordLength < 0) { 
+			throw new IllegalArgumentException("The word length can not be negative, maxWordLength: "+maxWordLength); 
+		}
+		// each automaton has its sink last
+		int m = this.reference.getStateNumber() + 1; 
+		int n = candidate.getStateNumber() + 1; 
+		boolean[] disagreeing = new boolean[m * n]; 
+		for(int r = 0; r < m; r++) { 
+			for(int c = 0; c < n; c++) { 
+				disagreeing[r * n + c] = Equivalence.isAccepted(this.reference, r) != Equivalence.isAccepted(candidate, c); 
+			}
+		}
+		double[] curve = new double[maxWordLength + 1]; 
+		double[] current = new double[m * n]; 
+		double[] next = new double[m * n]; 
+		current[0] = 1; 
+		curve[0] = disagreeing[0] ? 1 : 0; 
+		double share = 1.0 / this.alphabet.length; 
+		for(int length = 1; length <= maxWordLength; length++) { 
+			Arrays.fill(next, 0); 
+			for(int r = 0; r < m; r++) { 
+				for(int c = 0; c < n; c++) { 
+					double words = current[r * n + c]; 
+					if(words == 0) { 
+						continue; 
+					}
+					for(int input: this.alphabet) { 
+						int nextReference = Equivalence.next(this.reference, r, input); 
+						int nextCandidate = Equivalence.next(candidate, c, input); 
+						next[nextReference * n + nextCandidate] += words * share; 
+					}
+				}
+			}
+			double fraction = 0; 
+			for(int i = 0; i < next.length; i++) { 
+				if(disagreeing[i]) { 
+					fraction += next[i]; 
+				}
+			}
+			curve[length] = fraction; 
+			double[] swap = current; 
+			current = next; 
+			next = swap; 
+		}
+		return curve; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "Generalisation ("+this.reference.getStateNumber()+" reference states, "+this.alphabet.length+" inputs). "; 
+	}
+
+}
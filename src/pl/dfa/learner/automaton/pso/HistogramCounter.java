@@ -0,0 +1,50 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.List;
+
+
+/**
+ * Backend of the <code>Evaluator</code>: counts the final state histogram of 
+ * a discretised solution over a set of words, the number of non accepted 
+ * (even indexes) and accepted (odd indexes) words ending in each state. 
+ * The evaluator derives the errors, the optimal acceptance and the cached 
+ * entries from the histogram, whatever the way the words are stored and run. 
+ * 
+ * Counts are <code>double</code> values, which are exact up to 2<sup>53</sup> 
+ * words, so the enumerated word sets are counted exactly. 
+ * 
+ */
+public interface HistogramCounter { 
+
+	/**
+	 * @return the number of words counted into each histogram 
+	 */
+	public double size(); 
+
+	/**
+	 * Counts the final states of the words for an automaton 
+	 * 
+	 * @param automaton discretised solution, only read 
+	 * @param histogram cleared histogram, at least two counters per state 
+	 * @throws IllegalStateException if a word uses an input the automaton has no transition for 
+	 */
+	public void count(DiscreteAutomaton automaton, double[] histogram); 
+
+	/**
+	 * Counts the final states of the words for the first <code>number</code> 
+	 * automata of a batch, by default one automaton after the other 
+	 * 
+	 * @param automata discretised solutions, only read 
+	 * @param number number of automata to count 
+	 * @param histograms cleared histograms, one per automaton 
+	 */
+	public default void count(List<DiscreteAutomaton> automata, int number, double[][] histograms) { 
+		for(int k = 0; k < number; k++) { 
+			count(automata.get(k), histograms[k]); 
+		}
+	}
+
+}
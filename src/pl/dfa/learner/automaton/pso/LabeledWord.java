@@ -0,0 +1,92 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Word with its label, as produced by the word streams of <code>WordSetGenerator</code> 
+ * 
+ */
+public class LabeledWord { 
+
+	/**
+	 * Inputs of the word 
+	 */
+	private int[] word; 
+
+	/**
+	 * <code>true</code> if the word is accepted 
+	 */
+	private boolean accepted; 
+
+
+	/**
+	 * Creates a labeled word 
+	 * 
+	 * @param word inputs of the word, not copied 
+	 * @param accepted <code>true</code> if the word is accepted 
+	 */
+	public LabeledWord(int[] word, boolean accepted) { 
+		this.word = word; 
+		this.accepted = accepted; 
+	}
+
+
+	/**
+	 * @return the inputs of the word, not a copy 
+	 */
+	public int[] getWord() { 
+		return this.word; 
+	}
+
+
+	/**
+	 * @return the length of the word 
+	 */
+	public int getLength() { 
+		return this.word.length; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean isAccepted() { 
+		return this.accepted; 
+	}
+
+
+	/**
+	 * Adds this word to a word set 
+	 * 
+	 * @param wordSet word set to add the word to 
+	 * @return <code>true</code> if the word was added, see <code>WordSet.add</code> 
+	 */
+	public boolean addTo(WordSet wordSet) { 
+		return wordSet.add(this.word, this.word.length, this.accepted); 
+	}
+
+
+	/**
+	 * @return the word as a list of inputs 
+	 */
+	public List<Integer> toList() { 
+		List<Integer> list = new ArrayList<Integer>(this.word.length); 
+		for(int input: this.word) { 
+			list.add(input); 
+		}
+		return list; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return Arrays.toString(this.word)+(this.accepted ? " accepted" : " non accepted"); 
+	}
+
+}
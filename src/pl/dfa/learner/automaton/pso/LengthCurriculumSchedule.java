@@ -0,0 +1,139 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+
+/**
+ * Curriculum of word lengths: the swarm is first evaluated on the shortest 
+ * words only, and the highest word length of the sample is raised once the 
+ * best solution of the swarm misclassifies less than <code>threshold</code> 
+ * of the sample. The words of a generated word set are dominated by the 
+ * longest ones, so the early iterations are much cheaper. 
+ * 
+ */
+public class LengthCurriculumSchedule implements SampleSchedule { 
+
+	/**
+	 * Highest word length of the first sample 
+	 */
+	private int initialLength; 
+
+	/**
+	 * Evaluation below which the highest word length is raised 
+	 */
+	private double threshold; 
+
+	/**
+	 * Lengths of the words of the full word set 
+	 */
+	private int[] lengths; 
+
+	/**
+	 * Highest word length of the full word set 
+	 */
+	private int maxLength; 
+
+	/**
+	 * Highest word length of the current sample 
+	 */
+	private int length; 
+
+	/**
+	 * Number of words of the current sample 
+	 */
+	private int sampleSize; 
+
+
+	/**
+	 * Creates a schedule 
+	 * 
+	 * @param initialLength highest word length of the first sample 
+	 * @param threshold evaluation on the current sample below which longer words are added 
+	 */
+	public LengthCurriculumSchedule(int initialLength, double threshold) { 
+		if(initialLength < 1 || threshold <= 0) { 
+			throw new IllegalArgumentException("Invalid schedule, initialLength: "+initialLength
+					+", threshold: "+threshold); 
+		}
+		this.initialLength = initialLength; 
+		this.threshold = threshold; 
+	}
+
+
+	@Override
+	public int[] start(Evaluator evaluator) { 
+		this.lengths = new int[evaluator.size()]; 
+		this.maxLength = 0; 
+		for(int i = 0; i < this.lengths.length; i++) { 
+			this.lengths[i] = evaluator.getWordLength(i); 
+			this.maxLength = Math.max(this.maxLength, this.lengths[i]); 
+		}
+		this.length = this.initialLength; 
+		this.sampleSize = 0; 
+		return getSample(); 
+	}
+
+
+	@Override
+	public int[] next(int iteration, Solution best) { 
+		if(isFinal() || best.getEvaluation() >= this.threshold) { 
+			return null; 
+		}
+		this.length++; 
+		return getSample(); 
+	}
+
+
+	@Override
+	public boolean isFinal() { 
+		return this.length >= this.maxLength; 
+	}
+
+
+	/**
+	 * @return the highest word length of the current sample 
+	 */
+	public int getLength() { 
+		return this.length; 
+	}
+
+
+	/**
+	 * Gets the sample of the current length, raising the length until the 
+	 * sample has more words than the previous one or the schedule is final, 
+	 * so that no stage repeats the previous sample 
+	 * 
+	 * @return indexes of the words of the sample, in increasing order 
+	 */
+	private int[] getSample() { 
+		while(true) { 
+			int size = 0; 
+			for(int wordLength: this.lengths) { 
+				if(wordLength <= this.length) { 
+					size++; 
+				}
+			}
+			if(size > this.sampleSize || isFinal()) { 
+				this.sampleSize = size; 
+				int[] sample = new int[size]; 
+				size = 0; 
+				for(int i = 0; i < this.lengths.length; i++) { 
+					if(this.lengths[i] <= this.length) { 
+						sample[size++] = i; 
+					}
+				}
+				return sample; 
+			}
+			this.length++; 
+		}
+	}
+
+
+	@Override
+	public String toString() { 
+		return "LengthCurriculumSchedule (words up to "+this.length+" inputs long, threshold "
+				+this.threshold+"). "; 
+	}
+
+}
@@ -0,0 +1,210 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Histogram counter running the automata of a batch in a single walk over 
+ * the <code>WordTrie</code> of the words. The automata are split into tiles 
+ * whose transition tables fit together in the cache, and the automata of a 
+ * tile are advanced in lockstep, one trie node at a time, so the words are 
+ * read once per tile rather than once per automaton. The automata need a 
+ * transition for each state and input of the words. 
+ * 
+ */
+public class LockstepCounter implements HistogramCounter { 
+
+	/**
+	 * Highest number of transition table cells of the automata advanced in 
+	 * lockstep, so that their tables stay in the first level cache 
+	 */
+	private static final int TILE_CELLS = 1 << 12; 
+
+	/**
+	 * Prefix tree of the words 
+	 */
+	private WordTrie trie; 
+
+	/**
+	 * Scratch of the counting threads 
+	 */
+	private ThreadLocal<Tile> tiles; 
+
+
+	/**
+	 * Creates a counter of the words of a trie 
+	 * 
+	 * @param trie prefix tree of the words 
+	 */
+	public LockstepCounter(WordTrie trie) { 
+		this.trie = trie; 
+		this.tiles = new ThreadLocal<Tile>() { 
+			@Override
+			protected Tile initialValue() { 
+				return new Tile(); 
+			}
+		}; 
+	}
+
+
+	@Override
+	public double size() { 
+		double size = 0; 
+		for(int node = 0; node < this.trie.nodeCount; node++) { 
+			size += this.trie.acceptedEnds[node] + this.trie.nonAcceptedEnds[node]; 
+		}
+		return size; 
+	}
+
+
+	@Override
+	public void count(DiscreteAutomaton automaton, double[] histogram) { 
+		count(Collections.singletonList(automaton), 1, new double[][] {histogram}); 
+	}
+
+
+	@Override
+	public void count(List<DiscreteAutomaton> automata, int number, double[][] histograms) { 
+		Tile tile = this.tiles.get(); 
+		int first = 0; 
+		while(first < number) { 
+			int last = first + 1; 
+			int cells = getCells(automata.get(first)); 
+			while(last < number && cells + getCells(automata.get(last)) <= TILE_CELLS) { 
+				cells += getCells(automata.get(last)); 
+				last++; 
+			}
+			run(tile, automata, first, last); 
+			int offset = 0; 
+			for(int k = first; k < last; k++) { 
+				int counters = 2 * automata.get(k).getStateNumber(); 
+				System.arraycopy(tile.histograms, offset, histograms[k], 0, counters); 
+				offset += counters; 
+			}
+			first = last; 
+		}
+	}
+
+
+	/**
+	 * Runs a tile of the automata in lockstep over the trie. The tables of 
+	 * the tile are merged into one, with the transitions pointing at the row of 
+	 * the next state, so advancing an automaton is a single table read. The states 
+	 * of the automata along the current trie path are kept in one array, one 
+	 * row of the tile's width per depth. 
+	 * 
+	 * @param tile scratch of the calling thread, left holding the final state 
+	 * 			histograms of the tile's automata, one after another
+	 * @param automata discretised solutions 
+	 * @param first first automaton of the tile 
+	 * @param last end (exclusive) of the tile 
+	 */
+	private void run(Tile tile, List<DiscreteAutomaton> automata, int first, int last) { 
+		WordTrie trie = this.trie; 
+		int width = last - first; 
+		int cells = 0; 
+		int slots = 0; 
+		for(int k = first; k < last; k++) { 
+			DiscreteAutomaton automaton = automata.get(k); 
+			cells += getCells(automaton); 
+			slots += 2 * automaton.getStateNumber(); 
+		}
+		int[] table = tile.table = ensure(tile.table, cells); 
+		int[] slot = tile.slots = ensure(tile.slots, cells); 
+		int[] states = tile.states = ensure(tile.states, (trie.maxDepth + 1) * width); 
+		if(tile.histograms.length < slots) { 
+			tile.histograms = new double[slots]; 
+		} else { 
+			Arrays.fill(tile.histograms, 0, slots, 0); 
+		}
+		double[] histograms = tile.histograms; 
+		int base = 0; 
+		int histogramBase = 0; 
+		for(int k = first; k < last; k++) { 
+			DiscreteAutomaton automaton = automata.get(k); 
+			int stride = automaton.getStride(); 
+			int[] source = automaton.getTable(); 
+			for(int state = 0; state < automaton.getStateNumber(); state++) { 
+				for(int input = 0; input < stride; input++) { 
+					int cell = state * stride + input; 
+					int next = source[cell]; 
+					table[base + cell] = next < 0 ? -1 : base + next * stride; 
+				}
+				slot[base + state * stride] = histogramBase + 2 * state; 
+			}
+			states[k - first] = base; 
+			base += automaton.getStateNumber() * stride; 
+			histogramBase += 2 * automaton.getStateNumber(); 
+		}
+		int[] depth = trie.depth; 
+		int[] input = trie.input; 
+		for(int node = 0; node < trie.nodeCount; node++) { 
+			int row = depth[node] * width; 
+			if(node > 0) { 
+				int parentRow = row - width; 
+				int symbol = input[node]; 
+				for(int k = 0; k < width; k++) { 
+					states[row + k] = table[states[parentRow + k] + symbol]; 
+				}
+			}
+			int nonAccepted = trie.nonAcceptedEnds[node]; 
+			int accepted = trie.acceptedEnds[node]; 
+			if(nonAccepted != 0 || accepted != 0) { 
+				for(int k = 0; k < width; k++) { 
+					int index = slot[states[row + k]]; 
+					histograms[index] += nonAccepted; 
+					histograms[index + 1] += accepted; 
+				}
+			}
+		}
+	}
+
+
+	private static int getCells(DiscreteAutomaton automaton) { 
+		return automaton.getStateNumber() * automaton.getStride(); 
+	}
+
+
+	private static int[] ensure(int[] array, int size) { 
+		return array.length < size ? new int[size] : array; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "LockstepCounter ("+this.trie.nodeCount+" trie nodes). "; 
+	}
+
+
+	/**
+	 * Merged tables and histograms of a tile 
+	 */
+	private static class Tile { 
+
+		/**
+		 * Merged transition table of the tile 
+		 */
+		int[] table = new int[0]; 
+
+		/**
+		 * Histogram index of the state of each row of the merged table 
+		 */
+		int[] slots = new int[0]; 
+
+		/**
+		 * States of the tile's automata along the trie path, one row per depth 
+		 */
+		int[] states = new int[0]; 
+
+		/**
+		 * Final state histograms of the tile 
+		 */
+		double[] histograms = new double[0]; 
+	}
+
+}
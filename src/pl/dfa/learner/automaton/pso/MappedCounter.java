@@ -0,0 +1,113 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Histogram counter reading the words of a <code>MappedWordSet</code> from 
+ * its files for each count, instead of loading them into the heap. The 
+ * automata of a batch are counted in a single pass over the files. 
+ * 
+ */
+public class MappedCounter implements HistogramCounter { 
+
+	/**
+	 * Counted words 
+	 */
+	private MappedWordSet wordSet; 
+
+	/**
+	 * Word read from the files, one array per counting thread 
+	 */
+	private ThreadLocal<int[]> buffers; 
+
+
+	/**
+	 * Creates a counter of the words of a mapped word set 
+	 * 
+	 * @param wordSet mapped word set 
+	 */
+	public MappedCounter(MappedWordSet wordSet) { 
+		this.wordSet = wordSet; 
+		this.buffers = new ThreadLocal<int[]>() { 
+			@Override
+			protected int[] initialValue() { 
+				return new int[0]; 
+			}
+		}; 
+	}
+
+
+	@Override
+	public double size() { 
+		return this.wordSet.size(); 
+	}
+
+
+	@Override
+	public void count(DiscreteAutomaton automaton, double[] histogram) { 
+		count(Collections.singletonList(automaton), 1, new double[][] {histogram}); 
+	}
+
+
+	@Override
+	public void count(List<DiscreteAutomaton> automata, int number, double[][] histograms) { 
+		long size = this.wordSet.size(); 
+		for(long i = 0; i < size && number > 0; i++) { 
+			int length = load(i); 
+			int[] word = this.buffers.get(); 
+			int label = this.wordSet.isAccepted(i) ? 1 : 0; 
+			for(int k = 0; k < number; k++) { 
+				histograms[k][2 * run(automata.get(k), word, length) + label]++; 
+			}
+		}
+	}
+
+
+	/**
+	 * Runs a word from the initial state 
+	 * 
+	 * @param automaton discretised solution 
+	 * @param index word index 
+	 * @return zero based index of the final state 
+	 */
+	public int run(DiscreteAutomaton automaton, int index) { 
+		int length = load(index); 
+		return run(automaton, this.buffers.get(), length); 
+	}
+
+
+	/**
+	 * Copies a word into the buffer of the calling thread 
+	 * 
+	 * @return length of the word 
+	 */
+	private int load(long index) { 
+		int[] buffer = this.buffers.get(); 
+		if(buffer.length < this.wordSet.getLength(index)) { 
+			buffer = new int[this.wordSet.getLength(index)]; 
+			this.buffers.set(buffer); 
+		}
+		return this.wordSet.copyWord(index, buffer); 
+	}
+
+
+	private static int run(DiscreteAutomaton automaton, int[] word, int length) { 
+		int state = 0; 
+		for(int i = 0; i < length; i++) { 
+			state = automaton.getTransition(state, word[i]); 
+		}
+		return state; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "MappedCounter ("+this.wordSet.size()+" words). "; 
+	}
+
+}
@@ -0,0 +1,528 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Word set kept in memory mapped files rather than on the heap, for samples 
+ * larger than the heap. The inputs of the words are stored one after another 
+ * in <code>symbols.bin</code>, and the start of each word in <code>offsets.bin</code>, 
+ * the highest bit of a start being set for the accepted words. The files are 
+ * mapped in chunks of <code>CHUNK_SIZE</code> bytes, so their size is not 
+ * limited by the 2 GB of a single mapping, and the words are counted with 
+ * <code>long</code>s. 
+ * 
+ * An <code>Evaluator</code> reads the words of a mapped set straight from the 
+ * files for each evaluation, without copying them to the heap. 
+ * 
+ * Like in <code>WordSet</code>, duplicates are found by an open addressing 
+ * index of the fingerprints of the words, but the index is mapped too, from 
+ * <code>index-</code><i>slots</i><code>.bin</code>: 16 bytes per slot, the 
+ * fingerprint and the word number. Nothing grows on the heap with the number 
+ * of words, and an existing set is opened without reading its words, unless 
+ * its index file is missing. Growing the index writes a file twice as large; 
+ * the old one is deleted once it is no longer mapped. The set is safe for 
+ * concurrent reads, but not for reads concurrent with <code>add</code>. 
+ * 
+ * The methods taking an <code>int</code> word number reach the first 
+ * <code>Integer.MAX_VALUE</code> words, the <code>long</code> ones all of them. 
+ * 
+ */
+public class MappedWordSet extends WordSet implements Closeable { 
+
+	/**
+	 * Size of a mapped chunk of a file, in bytes 
+	 */
+	public static final int CHUNK_SIZE = 1 << 26; 
+
+	/**
+	 * Size of the header of the offsets file: the number of words, the 
+	 * number of accepted words and the number of slots of the index 
+	 */
+	private static final int HEADER_SIZE = 24; 
+
+	/**
+	 * Size of a slot of the index: the fingerprint and the word number plus one 
+	 */
+	private static final int SLOT_SIZE = 16; 
+
+	/**
+	 * Number of slots of the index of a new set 
+	 */
+	private static final long INITIAL_SLOTS = 1 << 10; 
+
+	/**
+	 * Flag of the accepted words in the starts of the words 
+	 */
+	private static final long ACCEPTED = Long.MIN_VALUE; 
+
+	/**
+	 * Directory of the files 
+	 */
+	private File directory; 
+
+	/**
+	 * Inputs file 
+	 */
+	private RandomAccessFile symbolFile; 
+
+	/**
+	 * Word starts file 
+	 */
+	private RandomAccessFile offsetFile; 
+
+	/**
+	 * Index file 
+	 */
+	private RandomAccessFile indexFile; 
+
+	/**
+	 * Mapped chunks of the inputs file 
+	 */
+	private List<MappedByteBuffer> symbolChunks; 
+
+	/**
+	 * Mapped chunks of the word starts file 
+	 */
+	private List<MappedByteBuffer> offsetChunks; 
+
+	/**
+	 * Mapped chunks of the index file 
+	 */
+	private List<MappedByteBuffer> indexChunks; 
+
+	/**
+	 * Number of slots of the index 
+	 */
+	private long indexCapacity; 
+
+	/**
+	 * Number of words 
+	 */
+	private long count; 
+
+	/**
+	 * Number of accepted words 
+	 */
+	private long acceptedCount; 
+
+
+	/**
+	 * Opens the word set stored in a directory, or creates an empty one 
+	 * 
+	 * @param directory directory of the files of the word set 
+	 * @throws IOException if the files can not be opened or mapped 
+	 */
+	public MappedWordSet(File directory) throws IOException { 
+		if(!directory.isDirectory() && !directory.mkdirs()) { 
+			throw new IOException("Can not create the directory "+directory); 
+		}
+		this.directory = directory; 
+		File offsets = new File(directory, "offsets.bin"); 
+		boolean existing = offsets.length() >= HEADER_SIZE; 
+		this.symbolFile = new RandomAccessFile(new File(directory, "symbols.bin"), "rw"); 
+		this.offsetFile = new RandomAccessFile(offsets, "rw"); 
+		this.symbolChunks = new CopyOnWriteArrayList<MappedByteBuffer>(); 
+		this.offsetChunks = new CopyOnWriteArrayList<MappedByteBuffer>(); 
+		if(existing) { 
+			this.count = getLong(this.offsetChunks, this.offsetFile, 0); 
+			this.acceptedCount = getLong(this.offsetChunks, this.offsetFile, 8); 
+			long capacity = getLong(this.offsetChunks, this.offsetFile, 16); 
+			// maps all the chunks up front, so that concurrent reads never map one
+			chunk(this.offsetChunks, this.offsetFile, entry(this.count)); 
+			chunk(this.symbolChunks, this.symbolFile, 4 * Math.max(0, getStart(this.count) - 1)); 
+			if(capacity > 0 && getIndexFile(capacity).isFile()) { 
+				openIndex(capacity, false); 
+			} else { 
+				reindex(); 
+			}
+		} else { 
+			openIndex(INITIAL_SLOTS, true); 
+			putLong(this.offsetChunks, this.offsetFile, entry(0), 0); 
+			writeHeader(); 
+		}
+		deleteOldIndexes(); 
+	}
+
+
+	@Override
+	public boolean add(int[] word, int length, boolean isAccepted) { 
+		long fingerprint = fingerprint(word, length); 
+		long slot = findSlot(word, length, fingerprint); 
+		if(isDuplicate(slot, word, length, isAccepted)) { 
+			return false; 
+		}
+		long start = getStart(this.count); 
+		for(int i = 0; i < length; i++) { 
+			putInt(start + i, word[i]); 
+		}
+		putLong(this.offsetChunks, this.offsetFile, entry(this.count), isAccepted ? start | ACCEPTED : start); 
+		putLong(this.offsetChunks, this.offsetFile, entry(this.count + 1), start + length); 
+		this.count++; 
+		if(isAccepted) { 
+			this.acceptedCount++; 
+		}
+		index(slot, fingerprint, this.count); 
+		return true; 
+	}
+
+
+	/**
+	 * The index may keep slots of words added after the last <code>flush</code> 
+	 * of a set which was not closed, they never match. 
+	 */
+	@Override
+	boolean matches(long index, int[] word, int length) { 
+		if(index >= this.count) { 
+			return false; 
+		}
+		long start = getStart(index); 
+		if(getStart(index + 1) - start != length) { 
+			return false; 
+		}
+		for(int i = 0; i < length; i++) { 
+			if(getInt(start + i) != word[i]) { 
+				return false; 
+			}
+		}
+		return true; 
+	}
+
+
+	@Override
+	boolean matches(long index, List<?> word) { 
+		if(index >= this.count) { 
+			return false; 
+		}
+		long start = getStart(index); 
+		if(getStart(index + 1) - start != word.size()) { 
+			return false; 
+		}
+		long symbol = start; 
+		for(Object input: word) { 
+			if(getInt(symbol++) != (Integer) input) { 
+				return false; 
+			}
+		}
+		return true; 
+	}
+
+
+	@Override
+	long getIndexCapacity() { 
+		return this.indexCapacity; 
+	}
+
+
+	@Override
+	long getSlotWord(long slot) { 
+		return getLong(this.indexChunks, this.indexFile, SLOT_SIZE * slot + 8); 
+	}
+
+
+	@Override
+	long getSlotFingerprint(long slot) { 
+		return getLong(this.indexChunks, this.indexFile, SLOT_SIZE * slot); 
+	}
+
+
+	@Override
+	void setSlot(long slot, long fingerprint, long number) { 
+		putLong(this.indexChunks, this.indexFile, SLOT_SIZE * slot, fingerprint); 
+		putLong(this.indexChunks, this.indexFile, SLOT_SIZE * slot + 8, number); 
+	}
+
+
+	@Override
+	boolean isAcceptedWord(long index) { 
+		return isAccepted(index); 
+	}
+
+
+	/**
+	 * Copies the index into a new file with twice as many slots, leaving out 
+	 * the slots of the words lost by a set which was not closed 
+	 */
+	@Override
+	void rehash() { 
+		RandomAccessFile file = this.indexFile; 
+		List<MappedByteBuffer> chunks = this.indexChunks; 
+		long capacity = this.indexCapacity; 
+		try { 
+			openIndex(2 * capacity, true); 
+			for(long slot = 0; slot < capacity; slot++) { 
+				long number = getLong(chunks, file, SLOT_SIZE * slot + 8); 
+				if(number != 0 && number <= this.count) { 
+					indexDistinct(getLong(chunks, file, SLOT_SIZE * slot), number); 
+				}
+			}
+			writeHeader(); 
+			file.close(); 
+		} catch(IOException e) { 
+			throw new IllegalStateException("Can not grow the index of the word set", e); 
+		}
+		deleteOldIndexes(); 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean isAccepted(long index) { 
+		return getLong(this.offsetChunks, this.offsetFile, entry(index)) < 0; 
+	}
+
+
+	@Override
+	public boolean isAccepted(int index) { 
+		return isAccepted((long) index); 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return length of the word 
+	 */
+	public int getLength(long index) { 
+		return (int) (getStart(index + 1) - getStart(index)); 
+	}
+
+
+	@Override
+	public int getLength(int index) { 
+		return getLength((long) index); 
+	}
+
+
+	@Override
+	public int getInput(int index, int position) { 
+		return getInt(getStart(index) + position); 
+	}
+
+
+	/**
+	 * Copies the inputs of a word 
+	 * 
+	 * @param index number of a word 
+	 * @param destination array to copy the word to, at least <code>getLength(index)</code> long 
+	 * @return length of the word 
+	 */
+	public int copyWord(long index, int[] destination) { 
+		long start = getStart(index); 
+		int length = (int) (getStart(index + 1) - start); 
+		for(int i = 0; i < length; i++) { 
+			destination[i] = getInt(start + i); 
+		}
+		return length; 
+	}
+
+
+	@Override
+	public int copyWord(int index, int[] destination) { 
+		return copyWord((long) index, destination); 
+	}
+
+
+	@Override
+	public long getAcceptedCount() { 
+		return this.acceptedCount; 
+	}
+
+
+	@Override
+	protected int nextWord(int from, boolean isAccepted) { 
+		long end = Math.min(this.count, Integer.MAX_VALUE); 
+		for(int index = from; index < end; index++) { 
+			if(isAccepted(index) == isAccepted) { 
+				return index; 
+			}
+		}
+		return -1; 
+	}
+
+
+	@Override
+	public long size() { 
+		return this.count; 
+	}
+
+
+	/**
+	 * Writes the header and the mapped chunks to the files 
+	 */
+	public void flush() { 
+		writeHeader(); 
+		for(MappedByteBuffer chunk: this.symbolChunks) { 
+			chunk.force(); 
+		}
+		for(MappedByteBuffer chunk: this.indexChunks) { 
+			chunk.force(); 
+		}
+		for(MappedByteBuffer chunk: this.offsetChunks) { 
+			chunk.force(); 
+		}
+	}
+
+
+	/**
+	 * Flushes and closes the files. The chunks stay mapped until they are 
+	 * garbage collected, as Java 8 can not unmap them. 
+	 */
+	@Override
+	public void close() throws IOException { 
+		flush(); 
+		this.symbolFile.close(); 
+		this.offsetFile.close(); 
+		this.indexFile.close(); 
+	}
+
+
+	private void writeHeader() { 
+		putLong(this.offsetChunks, this.offsetFile, 0, this.count); 
+		putLong(this.offsetChunks, this.offsetFile, 8, this.acceptedCount); 
+		putLong(this.offsetChunks, this.offsetFile, 16, this.indexCapacity); 
+	}
+
+
+	/**
+	 * Opens the index file with a number of slots, mapping all its chunks 
+	 * 
+	 * @param empty <code>true</code> to clear the file 
+	 */
+	private void openIndex(long capacity, boolean empty) throws IOException { 
+		this.indexFile = new RandomAccessFile(getIndexFile(capacity), "rw"); 
+		if(empty) { 
+			this.indexFile.setLength(0); 
+		}
+		this.indexChunks = new CopyOnWriteArrayList<MappedByteBuffer>(); 
+		this.indexCapacity = capacity; 
+		chunk(this.indexChunks, this.indexFile, SLOT_SIZE * capacity - 8); 
+	}
+
+
+	/**
+	 * Builds the index of the words, when its file is missing 
+	 */
+	private void reindex() throws IOException { 
+		long capacity = INITIAL_SLOTS; 
+		while(4 * this.count > 3 * capacity) { 
+			capacity *= 2; 
+		}
+		openIndex(capacity, true); 
+		int[] word = new int[16]; 
+		for(long index = 0; index < this.count; index++) { 
+			int length = getLength(index); 
+			if(word.length < length) { 
+				word = new int[Math.max(length, 2 * word.length)]; 
+			}
+			copyWord(index, word); 
+			indexDistinct(fingerprint(word, length), index + 1); 
+		}
+		writeHeader(); 
+	}
+
+
+	private File getIndexFile(long capacity) { 
+		return new File(this.directory, "index-"+capacity+".bin"); 
+	}
+
+
+	/**
+	 * Deletes the index files other than the current one. A file still mapped 
+	 * may not be deleted on every system, it is then deleted by a later call. 
+	 */
+	private void deleteOldIndexes() { 
+		File current = getIndexFile(this.indexCapacity); 
+		File[] files = this.directory.listFiles(); 
+		if(files == null) { 
+			return; 
+		}
+		for(File file: files) { 
+			if(file.getName().matches("index-\\d+\\.bin") && !file.equals(current)) { 
+				file.delete(); 
+			}
+		}
+	}
+
+
+	/**
+	 * @return position of the start of a word in the offsets file 
+	 */
+	private static long entry(long index) { 
+		return HEADER_SIZE + 8L * index; 
+	}
+
+
+	/**
+	 * @return position of the first input of a word, in inputs 
+	 */
+	private long getStart(long index) { 
+		return getLong(this.offsetChunks, this.offsetFile, entry(index)) & ~ACCEPTED; 
+	}
+
+
+	private int getInt(long symbol) { 
+		long position = 4 * symbol; 
+		return chunk(this.symbolChunks, this.symbolFile, position).getInt((int) (position % CHUNK_SIZE)); 
+	}
+
+
+	private void putInt(long symbol, int value) { 
+		long position = 4 * symbol; 
+		chunk(this.symbolChunks, this.symbolFile, position).putInt((int) (position % CHUNK_SIZE), value); 
+	}
+
+
+	private static long getLong(List<MappedByteBuffer> chunks, RandomAccessFile file, long position) { 
+		return chunk(chunks, file, position).getLong((int) (position % CHUNK_SIZE)); 
+	}
+
+
+	private static void putLong(List<MappedByteBuffer> chunks, RandomAccessFile file, long position, long value) { 
+		chunk(chunks, file, position).putLong((int) (position % CHUNK_SIZE), value); 
+	}
+
+
+	/**
+	 * Gets the chunk of a position, mapping the chunks up to it if needed. 
+	 * The values are aligned to their size, so none of them spans two chunks. 
+	 * The chunk lists are copied on write, so the chunks already mapped are 
+	 * read without locking while another one is being added. 
+	 */
+	private static MappedByteBuffer chunk(List<MappedByteBuffer> chunks, RandomAccessFile file, long position) { 
+		int index = (int) (position / CHUNK_SIZE); 
+		if(index < chunks.size()) { 
+			return chunks.get(index); 
+		}
+		synchronized(chunks) { 
+			try { 
+				while(chunks.size() <= index) { 
+					chunks.add(file.getChannel().map(FileChannel.MapMode.READ_WRITE,
+							(long) chunks.size() * CHUNK_SIZE, CHUNK_SIZE)); 
+				}
+			} catch(IOException e) { 
+				throw new IllegalStateException("Can not map the word set file", e); 
+			}
+			return chunks.get(index); 
+		}
+	}
+
+
+	@Override
+	public String toString() { 
+		return "MappedWordSet ("+this.count+" words, "+this.acceptedCount+" accepted, "
+				+(this.count - this.acceptedCount)+" non accepted). "; 
+	}
+
+}
@@ -0,0 +1,137 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Random;
+
+
+/**
+ * Random mini-batches of a word set, drawn again every <code>interval</code> 
+ * iterations. The batch grows by the <code>growth</code> factor whenever the 
+ * best solution of the swarm did not improve on the batch during the last 
+ * interval, so the batches get larger as the swarm converges, until the 
+ * whole word set is used. 
+ * 
+ */
+public class MiniBatchSchedule implements SampleSchedule { 
+
+	/**
+	 * Size of the first batch 
+	 */
+	private int initialSize; 
+
+	/**
+	 * Batch growth factor 
+	 */
+	private double growth; 
+
+	/**
+	 * Number of iterations between two batches 
+	 */
+	private int interval; 
+
+	/**
+	 * Word indexes, the current batch first 
+	 */
+	private int[] indexes; 
+
+	/**
+	 * Current batch size 
+	 */
+	private int size; 
+
+	/**
+	 * Best evaluation on the current batch at the start of the interval, 
+	 * <code>NaN</code> before the first iteration on the batch 
+	 */
+	private double intervalStart; 
+
+
+	/**
+	 * Creates a schedule 
+	 * 
+	 * @param initialSize number of words of the first batch 
+	 * @param growth factor the batch grows by once the swarm stops improving 
+	 * @param interval number of iterations between two batches 
+	 */
+	public MiniBatchSchedule(int initialSize, double growth, int interval) { 
+		if(initialSize < 1 || growth <= 1 || interval < 1) { 
+			throw new IllegalArgumentException("Invalid schedule, initialSize: "+initialSize
+					+", growth: "+growth+", interval: "+interval); 
+		}
+		this.initialSize = initialSize; 
+		this.growth = growth; 
+		this.interval = interval; 
+	}
+
+
+	@Override
+	public int[] start(Evaluator evaluator) { 
+		this.indexes = new int[evaluator.size()]; 
+		for(int i = 0; i < this.indexes.length; i++) { 
+			this.indexes[i] = i; 
+		}
+		this.size = Math.min(this.initialSize, this.indexes.length); 
+		this.intervalStart = Double.NaN; 
+		return draw(); 
+	}
+
+
+	@Override
+	public int[] next(int iteration, Solution best) { 
+		if(isFinal()) { 
+			return null; 
+		}
+		if(Double.isNaN(this.intervalStart)) { 
+			this.intervalStart = best.getEvaluation(); 
+		}
+		if((iteration + 1) % this.interval != 0) { 
+			return null; 
+		}
+		if(best.getEvaluation() >= this.intervalStart || best.getEvaluation() == 0) { 
+			this.size = (int) Math.min(this.indexes.length, Math.ceil(this.size * this.growth)); 
+		}
+		this.intervalStart = Double.NaN; 
+		return draw(); 
+	}
+
+
+	@Override
+	public boolean isFinal() { 
+		return this.size >= this.indexes.length; 
+	}
+
+
+	/**
+	 * Draws a batch of the current size (partial Fisher-Yates shuffle) 
+	 * 
+	 * @return indexes of the batch, in increasing order 
+	 */
+	private int[] draw() { 
+		if(isFinal()) { 
+			int[] all = Arrays.copyOf(this.indexes, this.indexes.length); 
+			Arrays.sort(all); 
+			return all; 
+		}
+		Random random = SingletonRandom.getRandom(); 
+		for(int i = 0; i < this.size; i++) { 
+			int j = i + random.nextInt(this.indexes.length - i); 
+			int swap = this.indexes[i]; 
+			this.indexes[i] = this.indexes[j]; 
+			this.indexes[j] = swap; 
+		}
+		int[] batch = Arrays.copyOf(this.indexes, this.size); 
+		Arrays.sort(batch); 
+		return batch; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "MiniBatchSchedule (batch of "+this.size+" words, growth "+this.growth
+				+", every "+this.interval+" iterations). "; 
+	}
+
+}
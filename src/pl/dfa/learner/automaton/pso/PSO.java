@@ -1,14 +1,25 @@
 package pl.dfa.learner.automaton.pso;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import pl.dfa.learner.automaton.DFA;
+
 /**
  * Particle swarm optimisation (PSO) for learning the deterministic 
  * finite automata based on the learning set of inputs divided into 
@@ -49,6 +60,91 @@ public class PSO {
 	 */
 	private List<PSOEventListener> listeners; 
 	
+	/**
+	 * Pool evaluating the particles in parallel, <code>null</code> if the particles 
+	 * are evaluated on the searching thread 
+	 */
+	private ForkJoinPool pool; 
+
+	/**
+	 * Reference automaton the best solutions are checked against, 
+	 * <code>null</code> if there is none 
+	 */
+	private DiscreteAutomaton reference; 
+
+	/**
+	 * Inputs of the current search 
+	 */
+	private int[] inputs; 
+
+	/**
+	 * Counterexample of the last equivalence check, <code>null</code> 
+	 * if the best solution so far is equivalent to the reference 
+	 */
+	private List<Integer> counterexample; 
+
+	/**
+	 * <code>true</code> once the best solution so far is equivalent to the reference 
+	 */
+	private boolean equivalent; 
+
+	/**
+	 * Schedule of the samples the swarm is evaluated on, <code>null</code> if the 
+	 * swarm is evaluated on the full word set 
+	 */
+	private SampleSchedule schedule; 
+
+	/**
+	 * Evaluator of the full word set, <code>null</code> without a schedule 
+	 */
+	private Evaluator fullEvaluator; 
+
+	/**
+	 * Best solution of the swarm on the current sample 
+	 */
+	private Solution bestOnSample; 
+
+	/**
+	 * Surrogate model prescreening the moved particles, <code>null</code> if 
+	 * all the particles are evaluated 
+	 */
+	private Surrogate surrogate; 
+
+	/**
+	 * Number of evaluations replaced by the predictions of the surrogate model 
+	 */
+	private long estimations; 
+
+	/**
+	 * Particles that kept a predicted evaluation in the last iteration 
+	 */
+	private boolean[] lastEstimated; 
+
+	/**
+	 * Pipeline of the training words, <code>null</code> if the word set is complete 
+	 */
+	private WordPipeline pipeline; 
+
+	/**
+	 * Words consumed from the pipeline so far 
+	 */
+	private WordSet pipelineWords; 
+
+	/**
+	 * Evaluator of the hold-out set, <code>null</code> if none 
+	 */
+	private Evaluator holdOut; 
+
+	/**
+	 * Single low priority thread evaluating the bests so far on the hold-out set 
+	 */
+	private ThreadPoolExecutor holdOutExecutor; 
+
+	/**
+	 * Growth of the consumed words moving the swarm to them 
+	 */
+	private static final int PIPELINE_GROWTH = 2; 
+
 	/**
 	 * Logger 
 	 */
@@ -75,12 +171,169 @@ public class PSO {
 	 * @return search results for this run of the optimisation 
 	 */
 	public Results search(Set<Integer> inputs, WordSet wordSet) { 
+		return search(inputs, new Evaluator(wordSet), wordSet); 
+	}
+
+
+	/**
+	 * Executes the PSO optimisation metaheuristic on all the words of length 
+	 * 1 to <code>maxWordLength</code> labelled by a reference automaton, 
+	 * without enumerating the words (see <code>ExhaustiveSample</code>). 
+	 * The listeners get a <code>null</code> word set when the search finishes. 
+	 * The reference is also used for the equivalence checks (see <code>setReference</code>). 
+	 * 
+	 * @param inputs allowed DFA inputs 
+	 * @param reference reference automaton 
+	 * @param maxWordLength highest word length of the training set 
+	 * @return search results for this run of the optimisation 
+	 */
+	public Results search(Set<Integer> inputs, DFA reference, int maxWordLength) { 
+		setReference(reference); 
+		return search(inputs, new Evaluator(reference, maxWordLength), null); 
+	}
+
+
+	/**
+	 * Executes the PSO optimisation metaheuristic on the words of a pipeline, 
+	 * starting as soon as the first batch of words is available. The swarm is 
+	 * moved to all the words consumed so far whenever they are twice as many as 
+	 * the words it is evaluated on, or the pipeline has finished: the particle 
+	 * bests and the results are then evaluated again on the new words. A search 
+	 * reaching no error goes on once more words are available. The listeners 
+	 * get all the consumed words when the search finishes. The search waits for 
+	 * more words at most until the allowed time runs out. 
+	 * 
+	 * @param inputs allowed DFA inputs 
+	 * @param pipeline pipeline of the training words, closed when the search finishes 
+	 * @return search results for this run of the optimisation 
+	 * @throws IllegalArgumentException if the pipeline finishes without any word 
+	 */
+	public Results search(Set<Integer> inputs, WordPipeline pipeline) { 
+		if(this.schedule != null) { 
+			throw new IllegalStateException("A sample schedule needs an enumerated word set"); 
+		}
+		WordSet wordSet = new WordSet(); 
+		while(wordSet.size() == 0 && !pipeline.isFinished()) { 
+			pipeline.drain(wordSet, true); 
+		}
+		if(wordSet.size() == 0) { 
+			pipeline.close(); 
+			throw new IllegalArgumentException("The pipeline finished without any word"); 
+		}
+		this.pipeline = pipeline; 
+		this.pipelineWords = wordSet; 
+		try { 
+			return search(inputs, new Evaluator(wordSet), wordSet); 
+		} finally { 
+			pipeline.close(); 
+			this.pipeline = null; 
+			this.pipelineWords = null; 
+		}
+	}
+
+
+	/**
+	 * Executes the PSO optimisation metaheuristic. 
+	 * 
+	 * @param inputs allowed DFA inputs 
+	 * @param evaluator evaluator of the training set 
+	 * @param wordSet training set, <code>null</code> if it is not enumerated 
+	 * @return search results for this run of the optimisation 
+	 */
+	private Results search(Set<Integer> inputs, Evaluator evaluator, WordSet wordSet) { 
+		if(this.schedule != null && evaluator.getExhaustiveSample() != null) { 
+			throw new IllegalStateException("A sample schedule needs an enumerated word set"); 
+		}
 		for(PSOEventListener listener: this.listeners) { 
 			listener.searchStarted(); 
 		}
 		long startTime = System.currentTimeMillis(); 
 		Results results = new Results(5); 
-		this.evaluator = new Evaluator(wordSet); 
+		this.evaluator = evaluator; 
+		this.inputs = new int[inputs.size()]; 
+		int index = 0; 
+		for(Integer input: inputs) { 
+			this.inputs[index++] = input; 
+		}
+		this.equivalent = false; 
+		this.counterexample = null; 
+		if(this.params.getEvaluationThreads() > 1) { 
+			this.pool = new ForkJoinPool(this.params.getEvaluationThreads()); 
+		}
+		configure(this.evaluator); 
+		logger.info(this.params); 
+		logger.info(this.evaluator); 
+		startHoldOut(); 
+		this.fullEvaluator = null; 
+		this.bestOnSample = null; 
+		this.surrogate = null; 
+		this.estimations = 0; 
+		this.lastEstimated = null; 
+		if(this.params.getSurrogateCapacity() > 0) { 
+			this.surrogate = new Surrogate(this.params.getSurrogateCapacity(),
+					this.params.getSurrogateNeighbours(), !this.params.isOptimalAcceptance()); 
+		}
+		if(this.schedule != null) { 
+			this.fullEvaluator = evaluator; 
+			useSample(this.schedule.start(evaluator)); 
+			logger.info(this.schedule); 
+		}
+		try { 
+			searchLoop(inputs, results, startTime); 
+		} finally { 
+			if(this.pool != null) { 
+				this.evaluator.setPool(null); 
+				evaluator.setPool(null); 
+				this.pool.shutdown(); 
+				this.pool = null; 
+			}
+			if(this.holdOutExecutor != null) { 
+				// the last best so far is still evaluated
+				this.holdOutExecutor.shutdown(); 
+				this.holdOutExecutor = null; 
+			}
+		}
+		long finishTime = System.currentTimeMillis(); 
+		logger.info("Processing time: "+((double)finishTime - (double)startTime)/1000+" s. "); 
+		if(evaluator.getCache() != null) { 
+			logger.info(evaluator.getCache()); 
+		}
+		if(this.surrogate != null) { 
+			logger.info("Estimated evaluations: "+this.estimations); 
+		}
+		for(PSOEventListener listener: this.listeners) { 
+			listener.searchFinished(results, wordSet); 
+		}
+		return results; 
+	}
+
+
+	/**
+	 * Sets up an evaluator according to the parameters 
+	 * 
+	 * @param evaluator evaluator of the swarm 
+	 */
+	private void configure(Evaluator evaluator) { 
+		evaluator.setOptimalAcceptance(this.params.isOptimalAcceptance()); 
+		evaluator.setDeltaEvaluation(this.params.isDeltaEvaluation()); 
+		evaluator.setLaneEvaluation(this.params.isLaneEvaluation()); 
+		if(this.params.getCacheCapacity() > 0) { 
+			evaluator.setCache(new FitnessCache(this.params.getCacheCapacity())); 
+		}
+		if(this.pool != null) { 
+			evaluator.setPool(this.pool); 
+		}
+	}
+
+
+	/**
+	 * Runs the search loop 
+	 * 
+	 * @param inputs allowed DFA inputs 
+	 * @param results search results to fill 
+	 * @param startTime time the search started at 
+	 */
+	private void searchLoop(Set<Integer> inputs, Results results, long startTime) { 
 		initParticles(inputs); 
 		evaluateParticles(results); 
 		logger.info(getStatistics(this.particles));
@@ -88,7 +341,7 @@ public class PSO {
 		// search loop 
 		int iterations = this.params.getMaxIterations(); 
 		
-		for(int i = 0; i < iterations; i++) { 
+		for(int i = 0; i < iterations && !this.equivalent; i++) { 
 			if(i%50 == 0) { 
 //				logger.info("Iteration "+i); 
 				for(PSOEventListener listener: this.listeners) { 
@@ -105,20 +358,24 @@ public class PSO {
 			if(i%50 == 0) { 
 				logger.info(getStatistics(this.particles)); 
 			} 
+			if(this.schedule != null) { 
+				int[] sample = this.schedule.next(i, this.bestOnSample); 
+				if(sample != null) { 
+					switchSample(sample, results); 
+				}
+			}
 			
-			if(this.bestSoFar.getEvaluation() == 0) { 
+			if(this.pipeline != null) { 
+				growWordSet(results, startTime); 
+			}
+
+			if((this.bestSoFar.getEvaluation() == 0 && isComplete()) || this.equivalent) { 
 				break; 
 			} 
 			if(System.currentTimeMillis() - startTime > this.params.getAllowedTimeMillis()) { 
 				break; 
 			}
 		} 
-		long finishTime = System.currentTimeMillis(); 
-		logger.info("Processing time: "+((double)finishTime - (double)startTime)/1000+" s. "); 
-		for(PSOEventListener listener: this.listeners) { 
-			listener.searchFinished(results, wordSet); 
-		}
-		return results; 
 	} 
 
 
@@ -147,24 +404,47 @@ public class PSO {
 	/**
 	 * Evaluates all the particles in the swarm. In case of improvements in 
 	 * the best found so far, the new best solution is added to the results. 
+	 * The particles are evaluated in parallel if a pool is available, the bests 
+	 * are then updated in the particle order, so the outcome does not depend 
+	 * on the order the evaluations finish in. 
+	 * With a sample schedule, the best solution of the swarm on the sample is 
+	 * evaluated on the full word set before it may become the best so far. 
+	 * With a surrogate model, the particles predicted not to be competitive keep 
+	 * the predicted evaluation, which is not exact. 
 	 * @param results results to update in case of the improved solution being found 
 	 */
 	private void evaluateParticles(Results results) { 
+		boolean[] estimated = prescreen(); 
+		double[] evaluations = computeEvaluations(estimated); 
+		boolean improved = false; 
+		Solution candidate = null; 
 		double best = Double.MAX_VALUE; 
 		if(this.bestSoFar != null && 
 				this.bestSoFar.getEvaluation() < best) { 
 			best = this.bestSoFar.getEvaluation(); 
 		} 
-		for(Particle particle: this.particles) { 
-			double evaluation = particle.evaluate(evaluator); 
-			if(evaluation < best) { 
+		for(int i = 0; i < this.particles.size(); i++) { 
+			Particle particle = this.particles.get(i); 
+			double evaluation = evaluations[i]; 
+			if(!particle.getSolution().isExact()) { 
+				// rejected by a bounded evaluation, can not improve on any best
+				continue; 
+			}
+			if(this.schedule != null) { 
+				if(this.bestOnSample == null || evaluation < this.bestOnSample.getEvaluation()) { 
+					this.bestOnSample = particle.getSolution(); 
+					candidate = this.bestOnSample; 
+				}
+			} else if(evaluation < best) { 
 				logger.info("Found new best "+evaluation); 
 				best = evaluation; 
+				improved = true; 
 				this.bestSoFar = particle.getSolution(); 
 				results.addResult(particle.getSolution());
 				for(PSOEventListener listener: this.listeners) { 
 					listener.foundNewBest(best); 
 				}
+				scoreHoldOut(this.bestSoFar); 
 			} 
 			Integer stateNum = particle.getStateNum(); 
 			if(this.bestPerStateNum.get(stateNum) == null) { 
@@ -174,7 +454,491 @@ public class PSO {
 					this.bestPerStateNum.put(stateNum, particle.getSolution()); 
 				}
 			}
+		}
+		if(this.surrogate != null) { 
+			for(int i = 0; i < this.particles.size(); i++) { 
+				Solution solution = this.particles.get(i).getSolution(); 
+				if(solution.isExact() && (estimated == null || !estimated[i])) { 
+					this.surrogate.add(solution); 
+				}
+			}
 		} 
+		if(candidate != null) { 
+			improved = verify(candidate, results); 
+		}
+		if(improved && this.reference != null) { 
+			checkEquivalence(); 
+		}
+	}
+
+
+	/**
+	 * Consumes the words available in the pipeline and moves the swarm to them 
+	 * once they are twice as many as the words of the evaluator, or the pipeline 
+	 * has finished. A swarm with no error waits for the next words, as long as 
+	 * the allowed time has not run out. 
+	 * 
+	 * @param results results to update 
+	 * @param startTime time the search started at 
+	 */
+	private void growWordSet(Results results, long startTime) { 
+		long target = (long) PIPELINE_GROWTH * this.evaluator.size(); 
+		this.pipeline.drain(this.pipelineWords, false); 
+		// nothing left to learn on the current words
+		while(this.bestSoFar.getEvaluation() == 0 && !this.pipeline.isFinished()
+				&& this.pipelineWords.size() < target && !Thread.currentThread().isInterrupted()) { 
+			long remaining = this.params.getAllowedTimeMillis() - (System.currentTimeMillis() - startTime); 
+			if(remaining <= 0) { 
+				break; 
+			}
+			this.pipeline.drain(this.pipelineWords, remaining); 
+		}
+		long size = this.pipelineWords.size(); 
+		if(size >= target || (this.pipeline.isFinished() && size > this.evaluator.size())) { 
+			useWords(results); 
+		}
+	}
+
+
+	/**
+	 * Moves the swarm to all the words consumed from the pipeline: the particle 
+	 * bests are evaluated again, the best of them becomes the best so far and 
+	 * the results are replaced by copies evaluated on the new words. 
+	 * 
+	 * @param results results to update 
+	 */
+	private void useWords(Results results) { 
+		Evaluator evaluator = new Evaluator(this.pipelineWords); 
+		configure(evaluator); 
+		this.evaluator.setPool(null); 
+		this.evaluator = evaluator; 
+		logger.info("Evaluating on "+evaluator.size()+" words"); 
+		this.bestPerStateNum.clear(); 
+		if(this.surrogate != null) { 
+			this.surrogate.clear(); 
+		}
+		Solution best = null; 
+		for(Particle particle: this.particles) { 
+			double evaluation = particle.rescore(evaluator); 
+			Solution particleBest = particle.getParticleBest(); 
+			if(best == null || evaluation < best.getEvaluation()) { 
+				best = particleBest; 
+			}
+			Solution stateBest = this.bestPerStateNum.get(particleBest.getStateNumber()); 
+			if(stateBest == null || evaluation < stateBest.getEvaluation()) { 
+				this.bestPerStateNum.put(particleBest.getStateNumber(), particleBest); 
+			}
+		}
+		Solution[] previous = results.bestSolutions.clone(); 
+		Arrays.fill(results.bestSolutions, null); 
+		for(Solution solution: previous) { 
+			if(solution != null) { 
+				Solution copy = new Solution(solution); 
+				evaluator.evaluate(copy); 
+				results.addResult(copy); 
+			}
+		}
+		this.bestSoFar = best; 
+		results.addResult(best); 
+		for(PSOEventListener listener: this.listeners) { 
+			listener.foundNewBest(best.getEvaluation()); 
+		}
+		scoreHoldOut(best); 
+		if(this.reference != null) { 
+			checkEquivalence(); 
+		}
+	}
+
+
+	/**
+	 * @return <code>true</code> if the swarm is evaluated on all the training words 
+	 */
+	private boolean isComplete() { 
+		return this.pipeline == null
+				|| (this.pipeline.isFinished() && this.evaluator.size() == this.pipelineWords.size()); 
+	}
+
+
+	/**
+	 * Evaluates a candidate for the best solution so far on the full word set. 
+	 * A copy of the candidate is added to the results if it improves on the best 
+	 * solution so far. 
+	 * 
+	 * @param candidate best solution of the swarm on the current sample 
+	 * @param results results to update 
+	 * @return <code>true</code> if the best solution so far was improved 
+	 */
+	private boolean verify(Solution candidate, Results results) { 
+		Solution verified = new Solution(candidate); 
+		double evaluation = this.fullEvaluator.evaluate(verified); 
+		if(this.bestSoFar != null && evaluation >= this.bestSoFar.getEvaluation()) { 
+			return false; 
+		}
+		logger.info("Found new best "+evaluation); 
+		this.bestSoFar = verified; 
+		results.addResult(verified); 
+		for(PSOEventListener listener: this.listeners) { 
+			listener.foundNewBest(evaluation); 
+		}
+		scoreHoldOut(verified); 
+		return true; 
+	}
+
+
+	/**
+	 * Moves the swarm to the next sample: the particle bests are evaluated again 
+	 * on the new sample and the bests of the swarm are chosen among them 
+	 * 
+	 * @param indexes indexes of the words of the sample 
+	 * @param results results to update 
+	 */
+	private void switchSample(int[] indexes, Results results) { 
+		useSample(indexes); 
+		this.bestOnSample = null; 
+		this.bestPerStateNum.clear(); 
+		if(this.surrogate != null) { 
+			this.surrogate.clear(); 
+		}
+		for(Particle particle: this.particles) { 
+			double evaluation = particle.rescore(this.evaluator); 
+			Solution best = particle.getParticleBest(); 
+			if(this.bestOnSample == null || evaluation < this.bestOnSample.getEvaluation()) { 
+				this.bestOnSample = best; 
+			}
+			Solution stateBest = this.bestPerStateNum.get(best.getStateNumber()); 
+			if(stateBest == null || evaluation < stateBest.getEvaluation()) { 
+				this.bestPerStateNum.put(best.getStateNumber(), best); 
+			}
+		}
+		if(verify(this.bestOnSample, results) && this.reference != null) { 
+			checkEquivalence(); 
+		}
+	}
+
+
+	/**
+	 * Sets the evaluator of the swarm to a sample of the full word set 
+	 * 
+	 * @param indexes indexes of the words of the sample 
+	 */
+	private void useSample(int[] indexes) { 
+		if(this.schedule.isFinal()) { 
+			this.evaluator = this.fullEvaluator; 
+		} else { 
+			this.evaluator = this.fullEvaluator.subset(indexes); 
+		}
+		logger.info("Evaluating on "+this.evaluator.size()+" of "+this.fullEvaluator.size()+" words"); 
+	}
+
+
+	/**
+	 * Sets the schedule of the samples of the word set the swarm is evaluated on 
+	 * (see <code>SampleSchedule</code>). The best solutions so far are always 
+	 * evaluated on the full word set, so the results stay exact. 
+	 * 
+	 * @param schedule sample schedule, <code>null</code> to evaluate the swarm 
+	 * 			on the full word set
+	 */
+	public void setSchedule(SampleSchedule schedule) { 
+		this.schedule = schedule; 
+	}
+
+
+	/**
+	 * @return the sample schedule, <code>null</code> if there is none 
+	 */
+	public SampleSchedule getSchedule() { 
+		return this.schedule; 
+	}
+
+
+	/**
+	 * Compares the best solution so far with the reference automaton 
+	 */
+	private void checkEquivalence() { 
+		DiscreteAutomaton best = new DiscreteAutomaton(); 
+		this.bestSoFar.discretiseTo(best); 
+		this.counterexample = Equivalence.findCounterexample(this.reference, best, this.inputs); 
+		this.equivalent = this.counterexample == null; 
+		if(this.equivalent) { 
+			logger.info("Best solution equivalent to the reference automaton"); 
+		} else { 
+			logger.info("Counterexample "+this.counterexample); 
+		}
+		for(PSOEventListener listener: this.listeners) { 
+			listener.equivalenceChecked(this.counterexample); 
+		}
+	}
+
+
+	/**
+	 * Queues a new best so far for the evaluation on the hold-out set. Only the 
+	 * latest best waits while another one is being evaluated, the older ones are 
+	 * dropped, so the search never waits for the hold-out evaluations. 
+	 * 
+	 * @param best new best so far 
+	 */
+	private void scoreHoldOut(Solution best) { 
+		if(this.holdOutExecutor == null) { 
+			return; 
+		}
+		// acceptance of the copy is not changed by the training evaluator any more
+		final Solution copy = new Solution(best); 
+		final double evaluation = best.getEvaluation(); 
+		final Evaluator holdOut = this.holdOut; 
+		final List<PSOEventListener> listeners = new ArrayList<PSOEventListener>(this.listeners); 
+		this.holdOutExecutor.execute(new Runnable() { 
+			@Override
+			public void run() { 
+				double holdOutEvaluation; 
+				try { 
+					holdOutEvaluation = holdOut.evaluate(copy); 
+				} catch (RuntimeException e) { 
+					// e.g. a hold-out input the solution does not support
+					logger.error("Hold-out evaluation failed", e); 
+					return; 
+				}
+				for(PSOEventListener listener: listeners) { 
+					listener.holdOutEvaluated(evaluation, holdOutEvaluation); 
+				}
+			}
+		}); 
+	}
+
+
+	/**
+	 * Sets the hold-out set: each new best so far is then evaluated on it on a low 
+	 * priority background thread, and the evaluation is reported to the listeners 
+	 * (see <code>PSOEventListener.holdOutEvaluated</code>). The accepted states of 
+	 * the solutions are kept as they are on the training set. 
+	 * 
+	 * @param holdOut hold-out set, <code>null</code> to disable the hold-out evaluations 
+	 */
+	public void setHoldOut(WordSet holdOut) { 
+		if(holdOut == null) { 
+			this.holdOut = null; 
+			return; 
+		}
+		this.holdOut = new Evaluator(holdOut); 
+		this.holdOut.setOptimalAcceptance(false); 
+	}
+
+
+	/**
+	 * Starts the thread of the hold-out evaluations 
+	 */
+	private void startHoldOut() { 
+		if(this.holdOut == null) { 
+			return; 
+		}
+		this.holdOutExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(1), new ThreadFactory() { 
+					@Override
+					public Thread newThread(Runnable runnable) { 
+						Thread thread = new Thread(runnable, "HoldOut"); 
+						thread.setDaemon(true); 
+						thread.setPriority(Thread.MIN_PRIORITY); 
+						return thread; 
+					}
+				}, new ThreadPoolExecutor.DiscardOldestPolicy()); 
+	}
+
+
+	/**
+	 * Sets the reference automaton. Each new best solution so far is then checked 
+	 * for the equivalence with the reference (see <code>Equivalence</code>), the 
+	 * counterexamples are reported to the listeners and the search finishes as 
+	 * soon as an equivalent solution is found. 
+	 * 
+	 * @param reference reference automaton, <code>null</code> to disable the checks 
+	 */
+	public void setReference(DFA reference) { 
+		if(reference == null) { 
+			this.reference = null; 
+			return; 
+		}
+		this.reference = new DiscreteAutomaton(); 
+		this.reference.load(reference); 
+	}
+
+
+	/**
+	 * @return the counterexample of the last equivalence check, <code>null</code> 
+	 * 			if there was none or the best solution is equivalent to the reference
+	 */
+	public List<Integer> getCounterexample() { 
+		return this.counterexample; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the best solution so far is equivalent to the reference 
+	 */
+	public boolean isEquivalent() { 
+		return this.equivalent; 
+	}
+
+
+	/**
+	 * Predicts the evaluations of the moved particles with the surrogate model. 
+	 * The particles predicted to be worse than their best solution by more than 
+	 * the margin get the predicted evaluation (see <code>Solution.setEstimatedEvaluation</code>). 
+	 * A particle is not predicted twice in a row, so that every particle keeps 
+	 * moving its best solution and feeding the model. 
+	 * 
+	 * @return <code>true</code> for the particles that are not to be evaluated, 
+	 * 			<code>null</code> if all the particles are to be evaluated
+	 */
+	private boolean[] prescreen() { 
+		if(this.surrogate == null || this.surrogate.size() < this.params.getSurrogateNeighbours()) { 
+			return null; 
+		}
+		boolean[] estimated = new boolean[this.particles.size()]; 
+		for(int i = 0; i < estimated.length; i++) { 
+			Particle particle = this.particles.get(i); 
+			Solution best = particle.getParticleBest(); 
+			if(best == particle.getSolution() || !best.isExact()
+					|| (this.lastEstimated != null && this.lastEstimated[i])) { 
+				continue; 
+			}
+			double predicted = this.surrogate.predict(particle.getSolution()); 
+			if(predicted > best.getEvaluation() + this.params.getSurrogateMargin()) { 
+				particle.getSolution().setEstimatedEvaluation(predicted); 
+				estimated[i] = true; 
+				this.estimations++; 
+			}
+		}
+		this.lastEstimated = estimated; 
+		return estimated; 
+	}
+
+
+	/**
+	 * Evaluates the particles, on the pool if there is one 
+	 * 
+	 * @param estimated <code>true</code> for the particles not to evaluate, 
+	 * 			<code>null</code> to evaluate all the particles
+	 * @return evaluations of the particles, in the particle order 
+	 */
+	private double[] computeEvaluations(boolean[] estimated) { 
+		if(this.params.isLockstepEvaluation() && !this.evaluator.isDeltaEvaluation()) { 
+			return computeLockstepEvaluations(estimated); 
+		}
+		final boolean bounded = this.params.isBoundedEvaluation(); 
+		double[] evaluations = new double[this.particles.size()]; 
+		if(this.pool == null) { 
+			for(int i = 0; i < evaluations.length; i++) { 
+				if(estimated != null && estimated[i]) { 
+					evaluations[i] = this.particles.get(i).getSolution().getEvaluation(); 
+				} else { 
+					evaluations[i] = this.particles.get(i).evaluate(this.evaluator, bounded); 
+				}
+			}
+			return evaluations; 
+		}
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(evaluations.length); 
+		for(int i = 0; i < evaluations.length; i++) { 
+			final Particle particle = this.particles.get(i); 
+			if(estimated != null && estimated[i]) { 
+				continue; 
+			}
+			tasks.add(new Callable<Double>() { 
+				@Override
+				public Double call() { 
+					return particle.evaluate(evaluator, bounded); 
+				}
+			}); 
+		}
+		List<Double> results = invoke(tasks); 
+		int task = 0; 
+		for(int i = 0; i < evaluations.length; i++) { 
+			if(estimated != null && estimated[i]) { 
+				evaluations[i] = this.particles.get(i).getSolution().getEvaluation(); 
+			} else { 
+				evaluations[i] = results.get(task++); 
+			}
+		}
+		return evaluations; 
+	}
+
+
+	/**
+	 * Evaluates the particles in lockstep batches (see <code>Evaluator.evaluate(List)</code>), 
+	 * one batch of consecutive particles per pool thread 
+	 * 
+	 * @param estimated <code>true</code> for the particles not to evaluate, 
+	 * 			<code>null</code> to evaluate all the particles
+	 * @return evaluations of the particles, in the particle order 
+	 */
+	private double[] computeLockstepEvaluations(boolean[] estimated) { 
+		List<Solution> solutions = new ArrayList<Solution>(this.particles.size()); 
+		for(int i = 0; i < this.particles.size(); i++) { 
+			if(estimated == null || !estimated[i]) { 
+				solutions.add(this.particles.get(i).getSolution()); 
+			}
+		}
+		int size = solutions.size(); 
+		if(this.pool == null) { 
+			this.evaluator.evaluate(solutions); 
+			return acceptEvaluations(); 
+		}
+		int batches = Math.max(1, Math.min(this.pool.getParallelism(), size)); 
+		List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(batches); 
+		for(int b = 0; b < batches; b++) { 
+			final List<Solution> batch = new ArrayList<Solution>(); 
+			for(int i = b * size / batches; i < (b + 1) * size / batches; i++) { 
+				batch.add(solutions.get(i)); 
+			}
+			tasks.add(new Callable<Double>() { 
+				@Override
+				public Double call() { 
+					evaluator.evaluate(batch); 
+					return null; 
+				}
+			}); 
+		}
+		invoke(tasks); 
+		return acceptEvaluations(); 
+	}
+
+
+	/**
+	 * Updates the particle bests after a lockstep evaluation 
+	 * 
+	 * @return evaluations of the particles, in the particle order 
+	 */
+	private double[] acceptEvaluations() { 
+		double[] evaluations = new double[this.particles.size()]; 
+		for(int i = 0; i < evaluations.length; i++) { 
+			evaluations[i] = this.particles.get(i).acceptEvaluation(); 
+		}
+		return evaluations; 
+	}
+
+
+	/**
+	 * Runs tasks on the pool and waits for all of them 
+	 * 
+	 * @param tasks tasks to run 
+	 * @return results of the tasks, in the task order 
+	 */
+	private List<Double> invoke(List<Callable<Double>> tasks) { 
+		List<Future<Double>> futures = this.pool.invokeAll(tasks); 
+		List<Double> results = new ArrayList<Double>(futures.size()); 
+		try { 
+			for(Future<Double> future: futures) { 
+				results.add(future.get()); 
+			}
+		} catch(InterruptedException e) { 
+			Thread.currentThread().interrupt(); 
+			throw new IllegalStateException("Interrupted while evaluating the swarm", e); 
+		} catch(ExecutionException e) { 
+			if(e.getCause() instanceof RuntimeException) { 
+				throw (RuntimeException) e.getCause(); 
+			}
+			throw new IllegalStateException("Particle evaluation failed", e.getCause()); 
+		}
+		return results; 
 	} 
 	
 	
@@ -210,7 +974,7 @@ public class PSO {
 		for(int i = 0; i < this.params.getParticlesCount(); i++) { 
 			Solution solution = new Solution(20, inputs); 
 			solution.randomiseNonRounded(); 
-			this.particles.add(new Particle(solution)); 
+			this.particles.add(new Particle(solution, !this.params.isOptimalAcceptance())); 
 		}
 		
 	}
@@ -1,5 +1,6 @@
 package pl.dfa.learner.automaton.pso;
 
+import java.util.List;
 
 /**
  * Event listener interface for integration with other software modules such as GUI 
@@ -34,9 +35,31 @@ public interface PSOEventListener {
 	 */
 	public void foundNewBest(double evaluation); 
 	
+	/**
+	 * Notifies the listener that the new best so far has been compared with 
+	 * the reference automaton (see <code>PSO.setReference</code>). 
+	 * 
+	 * @param counterexample word accepted by only one of the best solution and 
+	 * 			the reference, <code>null</code> if they are equivalent
+	 */
+	public default void equivalenceChecked(List<Integer> counterexample) { 
+	}
+
+	/**
+	 * Notifies the listener that a best so far has been evaluated on the hold-out 
+	 * set (see <code>PSO.setHoldOut</code>). Called from the background thread 
+	 * scoring the hold-out set, possibly after the search has finished. 
+	 * 
+	 * @param evaluation evaluation of the best so far on the training set 
+	 * @param holdOutEvaluation evaluation of the best so far on the hold-out set 
+	 */
+	public default void holdOutEvaluated(double evaluation, double holdOutEvaluation) { 
+	}
+
 	/**
 	 * Notifies the listener that the search progress has finished. This can be due to 
-	 * an optimal solution (evaluation = 0) being found, reaching the maximum allowed 
+	 * an optimal solution (evaluation = 0 or equivalent to the reference automaton) 
+	 * being found, reaching the maximum allowed 
 	 * number of iterations or reaching the maximum allowed execution time, whichever 
 	 * of those conditions happens first. 
 	 * 
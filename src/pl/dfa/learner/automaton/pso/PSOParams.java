@@ -18,6 +18,16 @@ public class PSOParams {
 	private double personalWeight; 
 	private double globalWeight; 
 	private int allowedTimeMins; 
+	private boolean boundedEvaluation; 
+	private boolean optimalAcceptance; 
+	private boolean deltaEvaluation; 
+	private int cacheCapacity; 
+	private int evaluationThreads; 
+	private boolean lockstepEvaluation; 
+	private boolean laneEvaluation; 
+	private int surrogateCapacity; 
+	private int surrogateNeighbours; 
+	private double surrogateMargin; 
 	
 	
 	public PSOParams() { 
@@ -27,6 +37,9 @@ public class PSOParams {
 		this.personalWeight = 10; // 2.8 in the literature
 		this.globalWeight = 2;  // 1.3 in the literature 
 		this.allowedTimeMins = 3; 
+		this.evaluationThreads = 1; 
+		this.surrogateNeighbours = 3; 
+		this.surrogateMargin = 0.02; 
 	} 
 
 
@@ -128,7 +141,17 @@ public class PSOParams {
 		return "PSOParams [maxIterations=" + maxIterations
 				+ ", particlesCount=" + particlesCount + ", velWeight="
 				+ velWeight + ", personalWeight=" + personalWeight
-				+ ", globalWeight=" + globalWeight + "]";
+				+ ", globalWeight=" + globalWeight
+				+ ", boundedEvaluation=" + boundedEvaluation
+				+ ", optimalAcceptance=" + optimalAcceptance
+				+ ", deltaEvaluation=" + deltaEvaluation
+				+ ", cacheCapacity=" + cacheCapacity
+				+ ", evaluationThreads=" + evaluationThreads
+				+ ", lockstepEvaluation=" + lockstepEvaluation
+				+ ", laneEvaluation=" + laneEvaluation
+				+ ", surrogateCapacity=" + surrogateCapacity
+				+ ", surrogateNeighbours=" + surrogateNeighbours
+				+ ", surrogateMargin=" + surrogateMargin + "]"; 
 	}
 
 
@@ -153,4 +176,213 @@ public class PSOParams {
 	} 
 	
 	
+	/**
+	 * @return <code>true</code> if particles stop evaluating as soon as 
+	 * 			they can not improve on their best solution
+	 */
+	public boolean isBoundedEvaluation() { 
+		return this.boundedEvaluation; 
+	}
+
+
+	/**
+	 * Enables bounded evaluations, disabled by default. Rejected solutions only 
+	 * get a partial evaluation (a lower bound), so the swarm average and worst 
+	 * evaluations reported during the search are lower bounds as well. 
+	 * 
+	 * @param boundedEvaluation <code>true</code> to enable bounded evaluations 
+	 */
+	public PSOParams setBoundedEvaluation(boolean boundedEvaluation) { 
+		this.boundedEvaluation = boundedEvaluation; 
+		return this; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if only the transitions are searched for and 
+	 * 			the accepted states are assigned by the evaluator
+	 */
+	public boolean isOptimalAcceptance() { 
+		return this.optimalAcceptance; 
+	}
+
+
+	/**
+	 * Enables the optimal acceptance mode (see <code>Evaluator.setOptimalAcceptance</code>), 
+	 * disabled by default. The particles then move in the transition dimensions only. 
+	 * 
+	 * @param optimalAcceptance <code>true</code> to enable the optimal acceptance mode 
+	 */
+	public PSOParams setOptimalAcceptance(boolean optimalAcceptance) { 
+		this.optimalAcceptance = optimalAcceptance; 
+		return this; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if particles re-evaluate only the words 
+	 * 			affected by their last movement
+	 */
+	public boolean isDeltaEvaluation() { 
+		return this.deltaEvaluation; 
+	}
+
+
+	/**
+	 * Enables the delta evaluations (see <code>Evaluator.setDeltaEvaluation</code>). 
+	 * Each particle then keeps a trace of about 16 bytes per prefix of the 
+	 * training words, and the bounded evaluation is not used. 
+	 * 
+	 * @param deltaEvaluation <code>true</code> to enable the delta evaluations 
+	 */
+	public PSOParams setDeltaEvaluation(boolean deltaEvaluation) { 
+		this.deltaEvaluation = deltaEvaluation; 
+		return this; 
+	}
+
+
+	/**
+	 * @return the number of evaluations kept in the fitness cache, 0 if the cache is disabled 
+	 */
+	public int getCacheCapacity() { 
+		return this.cacheCapacity; 
+	}
+
+
+	/**
+	 * Sets the size of the fitness cache shared by the swarm (see <code>FitnessCache</code>), 
+	 * by default 0. 
+	 * 
+	 * @param cacheCapacity number of cached evaluations, 0 to disable the cache 
+	 */
+	public PSOParams setCacheCapacity(int cacheCapacity) { 
+		this.cacheCapacity = cacheCapacity; 
+		return this; 
+	}
+
+
+	/**
+	 * @return the number of threads evaluating the particles 
+	 */
+	public int getEvaluationThreads() { 
+		return this.evaluationThreads; 
+	}
+
+
+	/**
+	 * Sets the number of threads evaluating the particles, by default 1. 
+	 * More threads only pay off on large word sets, the particles and shards 
+	 * of small ones are cheaper to evaluate than to hand over to the pool. 
+	 * 
+	 * @param evaluationThreads number of threads, 1 to evaluate on the searching thread 
+	 */
+	public PSOParams setEvaluationThreads(int evaluationThreads) { 
+		this.evaluationThreads = evaluationThreads; 
+		return this; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the particles are evaluated together, 
+	 * 			in one pass over the training words per batch
+	 */
+	public boolean isLockstepEvaluation() { 
+		return this.lockstepEvaluation; 
+	}
+
+
+	/**
+	 * Enables the lockstep evaluations (see <code>Evaluator.evaluate(List)</code>). 
+	 * The evaluations are then always exact, so the bounded evaluation is not used; 
+	 * the delta evaluation takes precedence if both are enabled. 
+	 * 
+	 * @param lockstepEvaluation <code>true</code> to evaluate the particles in lockstep 
+	 */
+	public PSOParams setLockstepEvaluation(boolean lockstepEvaluation) { 
+		this.lockstepEvaluation = lockstepEvaluation; 
+		return this; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the full evaluations run the words in interleaved blocks 
+	 */
+	public boolean isLaneEvaluation() { 
+		return this.laneEvaluation; 
+	}
+
+
+	/**
+	 * Enables the lane evaluations (see <code>Evaluator.setLaneEvaluation</code>). 
+	 * With more than one evaluation thread, each shard of the full evaluations 
+	 * runs its own range of the interleaved blocks. 
+	 * 
+	 * @param laneEvaluation <code>true</code> to enable the lane evaluations 
+	 */
+	public PSOParams setLaneEvaluation(boolean laneEvaluation) { 
+		this.laneEvaluation = laneEvaluation; 
+		return this; 
+	}
+
+
+	/**
+	 * @return the number of evaluations the surrogate model is fitted to, 
+	 * 			0 if the particles are not prescreened
+	 */
+	public int getSurrogateCapacity() { 
+		return this.surrogateCapacity; 
+	}
+
+
+	/**
+	 * Enables the prescreening of the moved particles by a surrogate model 
+	 * (see <code>Surrogate</code>): a particle predicted to be worse than its 
+	 * best solution by more than <code>surrogateMargin</code> keeps the 
+	 * predicted evaluation instead of being evaluated. 
+	 * 
+	 * @param surrogateCapacity number of recent evaluations the model is fitted to, 
+	 * 			0 to disable the prescreening
+	 */
+	public PSOParams setSurrogateCapacity(int surrogateCapacity) { 
+		this.surrogateCapacity = surrogateCapacity; 
+		return this; 
+	}
+
+
+	/**
+	 * @return the number of neighbours of a surrogate prediction 
+	 */
+	public int getSurrogateNeighbours() { 
+		return this.surrogateNeighbours; 
+	}
+
+
+	/**
+	 * @param surrogateNeighbours the number of neighbours of a surrogate prediction 
+	 */
+	public PSOParams setSurrogateNeighbours(int surrogateNeighbours) { 
+		this.surrogateNeighbours = surrogateNeighbours; 
+		return this; 
+	}
+
+
+	/**
+	 * @return the margin above the particle best up to which a predicted 
+	 * 			particle is still evaluated
+	 */
+	public double getSurrogateMargin() { 
+		return this.surrogateMargin; 
+	}
+
+
+	/**
+	 * @param surrogateMargin the margin above the particle best up to which 
+	 * 			a predicted particle is still evaluated
+	 */
+	public PSOParams setSurrogateMargin(double surrogateMargin) { 
+		this.surrogateMargin = surrogateMargin; 
+		return this; 
+	}
+
+
 }
@@ -30,6 +30,11 @@ public class Particle {
 	 * Best position (solution) that this particle ever was in 
 	 */
 	private Solution bestLocal; 
+
+	/**
+	 * Trace of the last evaluation of the current solution, used by the delta evaluations 
+	 */
+	private EvaluationTrace trace; 
 	
 	/**
 	 * logger object 
@@ -45,6 +50,25 @@ public class Particle {
 		this.bestLocal = solution; 
 		this.velocity = new Velocity(solution.getStates(), solution.getInputs(), 1, 0.2, 0.4); 
 		this.velocity.randomise(); 
+	}
+
+
+	/**
+	 * New particle based on an initial solution. 
+	 * 
+	 * @param solution initial solution 
+	 * @param searchAcceptance <code>false</code> if the acceptance of states is not 
+	 * 			moved by the particle (it is assigned by the evaluator instead)
+	 */
+	public Particle(Solution solution, boolean searchAcceptance) { 
+		this.current = solution; 
+		this.bestLocal = solution; 
+		if(searchAcceptance) { 
+			this.velocity = new Velocity(solution.getStates(), solution.getInputs(), 1, 0.2, 0.4); 
+		} else { 
+			this.velocity = new Velocity(solution.getStates(), solution.getInputs(), 1); 
+		}
+		this.velocity.randomise(); 
 	} 
 	
 	
@@ -120,6 +144,10 @@ public class Particle {
 				newSolution.setTransition(state, input, next);
 			} 			
 		} 
+		if(!this.velocity.hasAcceptance()) { 
+			this.current = newSolution; 
+			return; 
+		}
 		for(Integer state: this.current.getStates()) { 
 			double accepted = this.current.getAccepted(state); 
 			double speed = this.velocity.getAccepted(state); 
@@ -136,8 +164,61 @@ public class Particle {
 	 * @return current solution evaluation 
 	 */
 	public double evaluate(Evaluator evaluator) {
-		evaluator.evaluate(this.current); 
-		if(this.current.getEvaluation() < this.bestLocal.getEvaluation()) { 
+		return evaluate(evaluator, false); 
+	}
+
+
+	/**
+	 * Evaluates current and best solutions found by this particle. 
+	 * A bounded evaluation stops as soon as the current solution can not 
+	 * improve on the best one, leaving the current solution with a partial 
+	 * evaluation (see <code>Evaluator.evaluate(Solution, double)</code>). 
+	 * If the evaluator is in the delta evaluation mode, the evaluation is 
+	 * always exact and only re-runs the words affected by the last movement. 
+	 * 
+	 * @param evaluator evaluator to use for evaluations 
+	 * @param bounded <code>true</code> to bound the evaluation by the best solution 
+	 * @return current solution evaluation 
+	 */
+	public double evaluate(Evaluator evaluator, boolean bounded) { 
+		if(evaluator.isDeltaEvaluation()) { 
+			if(this.trace == null) { 
+				this.trace = evaluator.createTrace(); 
+			}
+			evaluator.evaluate(this.current, this.trace); 
+		} else if(bounded && this.bestLocal != this.current && this.bestLocal.isExact()) { 
+			evaluator.evaluate(this.current, this.bestLocal.getEvaluation()); 
+		} else { 
+			evaluator.evaluate(this.current); 
+		}
+		return acceptEvaluation(); 
+	}
+
+
+	/**
+	 * Evaluates the best solution of this particle again, e.g. on a different 
+	 * sample of the word set (see <code>SampleSchedule</code>). The trace of the 
+	 * delta evaluations is dropped, as it belongs to the previous evaluator. 
+	 * 
+	 * @param evaluator evaluator to use for the evaluation 
+	 * @return best solution evaluation 
+	 */
+	public double rescore(Evaluator evaluator) { 
+		this.trace = null; 
+		return evaluator.evaluate(this.bestLocal); 
+	}
+
+
+	/**
+	 * Updates the best solution of this particle once the current solution 
+	 * is evaluated, e.g. together with other candidates by 
+	 * <code>Evaluator.evaluate(List)</code>. 
+	 * 
+	 * @return current solution evaluation 
+	 */
+	public double acceptEvaluation() { 
+		if(this.current.isExact()
+				&& this.current.getEvaluation() < this.bestLocal.getEvaluation()) { 
 			this.bestLocal = this.current; 
 		}
 		return this.current.getEvaluation(); 
@@ -125,6 +125,23 @@ public class Results {
 	} 
 	
 	
+	/**
+	 * Computes the exact generalisation curve of a best solution (see <code>Generalisation</code>) 
+	 * 
+	 * @param index index of the solution, 0 for the best one 
+	 * @param reference reference automaton 
+	 * @param maxWordLength highest word length 
+	 * @return fraction of the words of each length, 0 to <code>maxWordLength</code>, 
+	 * 			on which the solution and the reference disagree
+	 */
+	public double[] getGeneralisation(int index, DFA reference, int maxWordLength) { 
+		if(this.bestSolutions[index] == null) { 
+			throw new IllegalArgumentException("No solution at index "+index); 
+		}
+		return new Generalisation(reference).computeDisagreement(this.bestSolutions[index], maxWordLength); 
+	}
+
+
 	/**
 	 * Returns the best results as a set of DFA-s. 
 	 * 
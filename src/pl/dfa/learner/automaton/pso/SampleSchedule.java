@@ -0,0 +1,38 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+
+/**
+ * Schedule of the samples of a word set the swarm is evaluated on (see 
+ * <code>PSO.setSchedule</code>). The particles are evaluated on the current 
+ * sample only, while the candidates for the best solution so far are always 
+ * evaluated on the full word set before they enter the results. 
+ * 
+ */
+public interface SampleSchedule { 
+
+	/**
+	 * Chooses the first sample of a search 
+	 * 
+	 * @param evaluator evaluator of the full word set 
+	 * @return indexes of the words of the first sample (see <code>Evaluator.getWord</code>) 
+	 */
+	public int[] start(Evaluator evaluator); 
+
+	/**
+	 * Chooses the next sample, called after each iteration of the search 
+	 * 
+	 * @param iteration iteration number 
+	 * @param best best solution of the swarm, evaluated on the current sample 
+	 * @return indexes of the words of the next sample, <code>null</code> to keep the current one 
+	 */
+	public int[] next(int iteration, Solution best); 
+
+	/**
+	 * @return <code>true</code> if the current sample is the full word set 
+	 */
+	public boolean isFinal(); 
+
+}
@@ -0,0 +1,42 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+
+/**
+ * Histogram counter whose words are split into units (words or blocks of 
+ * words) that can be counted separately, e.g. by the tasks of a 
+ * <code>ShardedCounter</code>. 
+ * 
+ */
+public interface ShardableCounter extends HistogramCounter { 
+
+	/**
+	 * @return the number of units 
+	 */
+	public int getUnitCount(); 
+
+	/**
+	 * Gets the cost of a unit, used to split the units into shards of about 
+	 * the same work 
+	 * 
+	 * @param unit unit index 
+	 * @return number of symbols of the unit, plus one per word for its final state 
+	 */
+	public long getUnitCost(int unit); 
+
+	/**
+	 * Counts the final states of the words of a range of units. Ranges can be 
+	 * counted at the same time by different threads. 
+	 * 
+	 * @param automaton discretised solution, only read 
+	 * @param first first unit 
+	 * @param last end (exclusive) of the unit range 
+	 * @param histogram histogram to add the words to 
+	 * @param offset index of the first counter in <code>histogram</code> 
+	 * @throws IllegalStateException if a word uses an input the automaton has no transition for 
+	 */
+	public void count(DiscreteAutomaton automaton, int first, int last, double[] histogram, int offset); 
+
+}
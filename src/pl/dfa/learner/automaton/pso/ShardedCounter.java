@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Histogram counter splitting the units of another counter into shards of 
+ * about the same cost, counted by separate tasks of a pool. Each shard counts 
+ * into its own slice of a per thread array, so the tasks do not allocate nor 
+ * share counters, and the slices are summed up. Counts called from the threads 
+ * of the same pool, e.g. by the particles evaluated in parallel, are not 
+ * sharded: the callers already keep the pool busy, and a thread waiting for 
+ * its shards could run another caller's count meanwhile, over the per thread 
+ * scratch space (slices, evaluator workspace) of the waiting one. 
+ * 
+ */
+public class ShardedCounter implements HistogramCounter { 
+
+	/**
+	 * Smallest cost worth a shard of its own 
+	 */
+	private static final long MIN_SHARD_COST = 1 << 15; 
+
+	/**
+	 * Number of shards per pool thread, so that the work stealing can balance 
+	 * the shards the automaton runs through at different speeds 
+	 */
+	private static final int SHARDS_PER_THREAD = 4; 
+
+	/**
+	 * Sharded counter 
+	 */
+	private ShardableCounter counter; 
+
+	/**
+	 * Pool the shards are counted on 
+	 */
+	private ForkJoinPool pool; 
+
+	/**
+	 * First unit of each shard followed by the number of units 
+	 */
+	private int[] shardStarts; 
+
+	/**
+	 * Histogram slices of the shards, one array per calling thread 
+	 */
+	private ThreadLocal<double[]> slices; 
+
+
+	private ShardedCounter(ShardableCounter counter, ForkJoinPool pool, int[] shardStarts) { 
+		this.counter = counter; 
+		this.pool = pool; 
+		this.shardStarts = shardStarts; 
+		this.slices = new ThreadLocal<double[]>() { 
+			@Override
+			protected double[] initialValue() { 
+				return new double[0]; 
+			}
+		}; 
+	}
+
+
+	/**
+	 * Shards a counter on a pool, the units being split into up to 
+	 * <code>SHARDS_PER_THREAD</code> shards per pool thread 
+	 * 
+	 * @param counter counter to shard 
+	 * @param pool pool to count the shards on, <code>null</code> not to shard 
+	 * @return sharded counter, or <code>counter</code> itself if there is no pool 
+	 * 			or its units are too few to be worth splitting
+	 */
+	public static HistogramCounter shard(ShardableCounter counter, ForkJoinPool pool) { 
+		if(pool == null) { 
+			return counter; 
+		}
+		int units = counter.getUnitCount(); 
+		long cost = 0; 
+		for(int unit = 0; unit < units; unit++) { 
+			cost += counter.getUnitCost(unit); 
+		}
+		int shards = (int) Math.min(pool.getParallelism() * SHARDS_PER_THREAD, cost / MIN_SHARD_COST); 
+		if(shards < 2) { 
+			return counter; 
+		}
+		int[] shardStarts = new int[shards + 1]; 
+		shardStarts[shards] = units; 
+		long total = 0; 
+		int shard = 1; 
+		for(int unit = 0; unit < units && shard < shards; unit++) { 
+			total += counter.getUnitCost(unit); 
+			if(total * shards >= cost * shard) { 
+				shardStarts[shard++] = unit + 1; 
+			}
+		}
+		return new ShardedCounter(counter, pool, shardStarts); 
+	}
+
+
+	@Override
+	public double size() { 
+		return this.counter.size(); 
+	}
+
+
+	@Override
+	public void count(DiscreteAutomaton automaton, double[] histogram) { 
+		if(ForkJoinTask.getPool() == this.pool) { 
+			this.counter.count(automaton, histogram); 
+			return; 
+		}
+		int stateNumber = automaton.getStateNumber(); 
+		int shards = this.shardStarts.length - 1; 
+		// slices are padded to keep the shards off each other's cache lines
+		int sliceSize = 2 * stateNumber + 8; 
+		double[] slices = this.slices.get(); 
+		if(slices.length < shards * sliceSize) { 
+			slices = new double[shards * sliceSize]; 
+			this.slices.set(slices); 
+		} else { 
+			Arrays.fill(slices, 0, shards * sliceSize, 0); 
+		}
+		this.pool.invoke(new ShardTask(automaton, slices, sliceSize, 0, shards)); 
+		for(int shard = 0; shard < shards; shard++) { 
+			int offset = shard * sliceSize; 
+			for(int i = 0; i < 2 * stateNumber; i++) { 
+				histogram[i] += slices[offset + i]; 
+			}
+		}
+	}
+
+
+	/**
+	 * @return the number of shards 
+	 */
+	public int getShardCount() { 
+		return this.shardStarts.length - 1; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "ShardedCounter ("+getShardCount()+" shards of "+this.counter+"). "; 
+	}
+
+
+	/**
+	 * Task counting the final states of a range of shards, 
+	 * split in halves until a single shard is left. 
+	 */
+	private class ShardTask extends RecursiveAction { 
+
+		private static final long serialVersionUID = 1L; 
+
+		private DiscreteAutomaton automaton; 
+
+		private double[] slices; 
+
+		private int sliceSize; 
+
+		private int first; 
+
+		private int last; 
+
+
+		/**
+		 * @param automaton discretised solution, only read by the task 
+		 * @param slices cleared histogram slices, one per shard 
+		 * @param sliceSize length of a slice 
+		 * @param first first shard 
+		 * @param last end (exclusive) of the shard range 
+		 */
+		ShardTask(DiscreteAutomaton automaton, double[] slices, int sliceSize, int first, int last) { 
+			this.automaton = automaton; 
+			this.slices = slices; 
+			this.sliceSize = sliceSize; 
+			this.first = first; 
+			this.last = last; 
+		}
+
+
+		@Override
+		protected void compute() { 
+			if(this.last - this.first > 1) { 
+				int middle = (this.first + this.last) >>> 1; 
+				invokeAll(new ShardTask(this.automaton, this.slices, this.sliceSize, this.first, middle),
+						new ShardTask(this.automaton, this.slices, this.sliceSize, middle, this.last)); 
+				return; 
+			}
+			counter.count(this.automaton, shardStarts[this.first], shardStarts[this.first + 1],
+					this.slices, this.first * this.sliceSize); 
+		}
+	}
+
+}
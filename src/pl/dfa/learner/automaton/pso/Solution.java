@@ -69,6 +69,18 @@ public class Solution {
 	 */
 	private boolean evaluated; 
 	
+	/**
+	 * Evaluation exactness flag, <code>false</code> if the evaluation 
+	 * is only partial (e.g. a lower bound of an interrupted evaluation). 
+	 */
+	private boolean exact; 
+
+	/**
+	 * Estimation flag, <code>true</code> if the evaluation is predicted 
+	 * rather than computed on the word set (see <code>Surrogate</code>). 
+	 */
+	private boolean estimated; 
+
 	/**
 	 * Number of states 
 	 */
@@ -115,6 +127,8 @@ public class Solution {
 		this.evaluation = solution.evaluation; 
 		this.random = solution.random; 
 		this.evaluated = solution.evaluated; 
+		this.exact = solution.exact; 
+		this.estimated = solution.estimated; 
 		this.acceptedMin = solution.acceptedMin; 
 		this.acceptedMax = solution.acceptedMax; 
 	}
@@ -269,6 +283,41 @@ public class Solution {
 	} 
 	
 	
+	/**
+	 * Writes the rounded transitions and the acceptance of this solution 
+	 * into a reusable discrete automaton, without building the intermediate 
+	 * state sets and maps <code>DFAFactory.convertFromSolution</code> needs. 
+	 * The states are always 1..n, so the closest state for the values 
+	 * outside of that range is found by clamping instead of <code>getClosest</code>. 
+	 * 
+	 * @param automaton automaton to overwrite with this solution 
+	 */
+	public void discretiseTo(DiscreteAutomaton automaton) { 
+		int stateNum = this.states.size(); 
+		int maxInput = 0; 
+		for(Integer input: this.transitions.keySet()) { 
+			maxInput = Math.max(maxInput, input); 
+		}
+		automaton.reset(stateNum, maxInput); 
+		for(Map.Entry<Integer, DoubleTransitionTable> entry: this.transitions.entrySet()) { 
+			int input = entry.getKey(); 
+			DoubleTransitionTable table = entry.getValue(); 
+			for(int state = 1; state <= stateNum; state++) { 
+				long next = Math.round(table.getNext(state)); 
+				if(next < 1) { 
+					next = 1; 
+				} else if(next > stateNum) { 
+					next = stateNum; 
+				}
+				automaton.setTransition(state - 1, input, (int) next - 1); 
+			}
+		}
+		for(int state = 1; state <= stateNum; state++) { 
+			automaton.setAccepted(state - 1, this.acceptedStates.get(state) >= 0.5); 
+		}
+	}
+
+
 	/**
 	 * Gets closest state in case of discontinuities 
 	 * @param nextState rounded number state 
@@ -380,10 +429,62 @@ public class Solution {
 	 */
 	public void setEvaluation(double evaluation) { 
 		this.evaluated = true; 
+		this.exact = true; 
+		this.estimated = false; 
 		this.evaluation = evaluation;
 	}
 
 
+	/**
+	 * Sets a partial evaluation, such as the lower bound found by an 
+	 * interrupted evaluation. 
+	 * 
+	 * @param evaluation partial evaluation 
+	 */
+	public void setPartialEvaluation(double evaluation) { 
+		this.evaluated = true; 
+		this.exact = false; 
+		this.estimated = false; 
+		this.evaluation = evaluation; 
+	}
+
+
+	/**
+	 * Sets an estimated evaluation, such as the prediction of a surrogate 
+	 * model. The evaluation is not exact. 
+	 * 
+	 * @param evaluation estimated evaluation 
+	 */
+	public void setEstimatedEvaluation(double evaluation) { 
+		this.evaluated = true; 
+		this.exact = false; 
+		this.estimated = true; 
+		this.evaluation = evaluation; 
+	}
+
+
+	/**
+	 * Checks if the evaluation is an estimation 
+	 * 
+	 * @return <code>true</code> if the evaluation was predicted without 
+	 * 			evaluating the solution on the word set
+	 */
+	public boolean isEstimated() { 
+		return this.evaluated && this.estimated; 
+	}
+
+
+	/**
+	 * Checks if the evaluation is exact 
+	 * 
+	 * @return <code>true</code> if the solution was evaluated on 
+	 * 			the entire word set, <code>false</code> otherwise
+	 */
+	public boolean isExact() { 
+		return this.evaluated && this.exact; 
+	}
+
+
 	/**
 	 * Gets the state number 
 	 * 
@@ -0,0 +1,201 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+
+
+/**
+ * Nearest neighbour model of the evaluations, fitted to the last 
+ * <code>capacity</code> exactly evaluated solutions. A solution is described 
+ * by its discretised transitions (and the acceptance of its states, if it is 
+ * searched for), and its evaluation is predicted as the average evaluation of 
+ * the <code>neighbours</code> closest solutions in the Hamming distance. Only 
+ * solutions with the same number of states and inputs are compared. 
+ * 
+ * The model is not thread safe. 
+ * 
+ */
+public class Surrogate { 
+
+	/**
+	 * Maximum number of remembered solutions 
+	 */
+	private int capacity; 
+
+	/**
+	 * Number of neighbours of a prediction 
+	 */
+	private int neighbours; 
+
+	/**
+	 * <code>true</code> if the acceptance is a part of the descriptions 
+	 */
+	private boolean withAcceptance; 
+
+	/**
+	 * Descriptions of the remembered solutions, used as a ring buffer 
+	 */
+	private int[][] points; 
+
+	/**
+	 * Evaluations of the remembered solutions 
+	 */
+	private double[] values; 
+
+	/**
+	 * Number of remembered solutions 
+	 */
+	private int size; 
+
+	/**
+	 * Position of the next remembered solution 
+	 */
+	private int next; 
+
+	/**
+	 * Scratch automaton 
+	 */
+	private DiscreteAutomaton automaton; 
+
+	/**
+	 * Distances of the closest solutions of a prediction, in increasing order 
+	 */
+	private int[] closestDistances; 
+
+	/**
+	 * Evaluations of the closest solutions of a prediction 
+	 */
+	private double[] closestValues; 
+
+
+	/**
+	 * Creates an empty model 
+	 * 
+	 * @param capacity maximum number of remembered solutions 
+	 * @param neighbours number of neighbours of a prediction 
+	 * @param withAcceptance <code>true</code> if the acceptance of the states 
+	 * 			is searched for, <code>false</code> if it is assigned by the evaluator
+	 */
+	public Surrogate(int capacity, int neighbours, boolean withAcceptance) { 
+		if(neighbours < 1 || capacity < neighbours) { 
+			throw new IllegalArgumentException("Invalid surrogate, capacity: "+capacity+", neighbours: "+neighbours); 
+		}
+		this.capacity = capacity; 
+		this.neighbours = neighbours; 
+		this.withAcceptance = withAcceptance; 
+		this.points = new int[capacity][]; 
+		this.values = new double[capacity]; 
+		this.automaton = new DiscreteAutomaton(); 
+		this.closestDistances = new int[neighbours]; 
+		this.closestValues = new double[neighbours]; 
+	}
+
+
+	/**
+	 * Remembers an exactly evaluated solution, replacing the oldest one 
+	 * if the model is full 
+	 * 
+	 * @param solution evaluated solution 
+	 */
+	public void add(Solution solution) { 
+		this.points[this.next] = describe(solution, this.points[this.next]); 
+		this.values[this.next] = solution.getEvaluation(); 
+		this.next = (this.next + 1) % this.capacity; 
+		this.size = Math.min(this.size + 1, this.capacity); 
+	}
+
+
+	/**
+	 * Predicts the evaluation of a solution 
+	 * 
+	 * @param solution solution to predict the evaluation of 
+	 * @return predicted evaluation, <code>NaN</code> if fewer than <code>neighbours</code> 
+	 * 			comparable solutions are remembered
+	 */
+	public double predict(Solution solution) { 
+		int[] point = describe(solution, null); 
+		int found = 0; 
+		for(int i = 0; i < this.size; i++) { 
+			int[] other = this.points[i]; 
+			if(other.length != point.length) { 
+				continue; 
+			}
+			int limit = found < this.neighbours ? Integer.MAX_VALUE : this.closestDistances[found - 1]; 
+			int distance = 0; 
+			for(int j = 0; j < point.length && distance < limit; j++) { 
+				if(point[j] != other[j]) { 
+					distance++; 
+				}
+			}
+			if(distance >= limit) { 
+				continue; 
+			}
+			// insertion into the closest solutions, the farthest one drops out
+			int position = Math.min(found, this.neighbours - 1); 
+			while(position > 0 && this.closestDistances[position - 1] > distance) { 
+				this.closestDistances[position] = this.closestDistances[position - 1]; 
+				this.closestValues[position] = this.closestValues[position - 1]; 
+				position--; 
+			}
+			this.closestDistances[position] = distance; 
+			this.closestValues[position] = this.values[i]; 
+			found = Math.min(found + 1, this.neighbours); 
+		}
+		if(found < this.neighbours) { 
+			return Double.NaN; 
+		}
+		double sum = 0; 
+		for(int i = 0; i < this.neighbours; i++) { 
+			sum += this.closestValues[i]; 
+		}
+		return sum / this.neighbours; 
+	}
+
+
+	/**
+	 * Forgets all the solutions, e.g. when the word set changes 
+	 */
+	public void clear() { 
+		Arrays.fill(this.points, null); 
+		this.size = 0; 
+		this.next = 0; 
+	}
+
+
+	/**
+	 * @return the number of remembered solutions 
+	 */
+	public int size() { 
+		return this.size; 
+	}
+
+
+	/**
+	 * Describes a solution by its discretised transitions, row after row, 
+	 * followed by the acceptance of the states if it is searched for 
+	 * 
+	 * @param solution solution to describe 
+	 * @param reuse array to reuse if it has the right length, may be <code>null</code> 
+	 * @return description of the solution 
+	 */
+	private int[] describe(Solution solution, int[] reuse) { 
+		solution.discretiseTo(this.automaton); 
+		int cells = this.automaton.getStateNumber() * this.automaton.getStride(); 
+		int length = cells + (this.withAcceptance ? this.automaton.getStateNumber() : 0); 
+		int[] point = reuse != null && reuse.length == length ? reuse : new int[length]; 
+		System.arraycopy(this.automaton.getTable(), 0, point, 0, cells); 
+		for(int i = cells; i < length; i++) { 
+			point[i] = this.automaton.isAccepted(i - cells) ? 1 : 0; 
+		}
+		return point; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "Surrogate ("+this.size+"/"+this.capacity+" solutions, "+this.neighbours+" neighbours). "; 
+	}
+
+}
@@ -22,7 +22,8 @@ public class Velocity {
 	private Map<Integer, DoubleTransitionTable> transitions; 
 	
 	/**
-	 * Accepted states velocity vector 
+	 * Accepted states velocity vector, <code>null</code> if the acceptance 
+	 * is not searched for (it is assigned by the evaluator instead) 
 	 */
 	private Map<Integer, Double> acceptedStates; 
 	
@@ -81,6 +82,25 @@ public class Velocity {
 	}
 	
 	
+	/**
+	 * Initialises a new velocity object with the transition dimensions only, 
+	 * for searches in which the acceptance of states is not a part of the 
+	 * search space (see <code>Evaluator.setOptimalAcceptance</code>). 
+	 * 
+	 * @param states set of states 
+	 * @param inputs set of inputs 
+	 * @param initialStateMaxAbs initial transition velocity boundary 
+	 */
+	public Velocity(Set<Integer> states, Set<Integer> inputs, double initialStateMaxAbs) { 
+		this.initialStateMaxAbs = initialStateMaxAbs; 
+		this.transitions = new TreeMap<Integer, DoubleTransitionTable>(); 
+		this.states = states; 
+		this.inputs = inputs; 
+		this.random = SingletonRandom.getRandom(); 
+		initTransitions(); 
+	}
+
+
 	
 	/**
 	 * Initialises the transitions velocity vector 
@@ -113,6 +133,9 @@ public class Velocity {
 			DoubleTransitionTable table = this.transitions.get(input); 
 			table.randomiseNonRounded(this.initialStateMaxAbs); 
 		} 
+		if(!hasAcceptance()) { 
+			return; 
+		}
 		for(Integer state: this.states) { 
 			double newAccepted = random.nextDouble() * this.initialAcceptedMaxAbs; 
 			if(random.nextBoolean()) {
@@ -130,6 +153,9 @@ public class Velocity {
 		for(Integer input: this.inputs) { 
 			builder.append(this.transitions.get(input)); 
 			builder.append("\n"); 
+		}
+		if(!hasAcceptance()) { 
+			return builder.toString(); 
 		} 
 		builder.append("\nAccepted: \n"); 
 		for(Integer state: this.states) { 
@@ -153,7 +179,9 @@ public class Velocity {
 	 */
 	public void update(PSOParams params, Solution current, Solution currentBest, Solution bestSoFar) {
 		updateTransitions(params, current, currentBest, bestSoFar); 
-		updateAccepted(params, current, currentBest, bestSoFar); 
+		if(hasAcceptance()) { 
+			updateAccepted(params, current, currentBest, bestSoFar); 
+		}
 	}
 
 
@@ -241,8 +269,21 @@ public class Velocity {
 	 * @return acceptance of the current state, encoded as a double 
 	 */
 	public double getAccepted(Integer state) {
+		if(!hasAcceptance()) { 
+			throw new IllegalStateException("This velocity has no acceptance dimensions. "); 
+		}
 		double accepted = this.acceptedStates.get(state); 
 		return accepted; 
 	}
 
+
+	/**
+	 * Checks if the acceptance of states is a part of this velocity 
+	 * 
+	 * @return <code>true</code> if the velocity has the acceptance dimensions 
+	 */
+	public boolean hasAcceptance() { 
+		return this.acceptedStates != null; 
+	}
+
 }
@@ -0,0 +1,74 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+
+/**
+ * Histogram counter running the words of an evaluator one by one, each word 
+ * being a unit of its own. 
+ * 
+ */
+public class WordCounter implements ShardableCounter { 
+
+	/**
+	 * Words, as arrays of inputs 
+	 */
+	private int[][] words; 
+
+	/**
+	 * Word labels, <code>true</code> for the accepted words 
+	 */
+	private boolean[] labels; 
+
+
+	/**
+	 * Creates a counter of words, which are shared, not copied 
+	 * 
+	 * @param words words, as arrays of inputs 
+	 * @param labels word labels, <code>true</code> for the accepted words 
+	 */
+	public WordCounter(int[][] words, boolean[] labels) { 
+		this.words = words; 
+		this.labels = labels; 
+	}
+
+
+	@Override
+	public double size() { 
+		return this.words.length; 
+	}
+
+
+	@Override
+	public void count(DiscreteAutomaton automaton, double[] histogram) { 
+		count(automaton, 0, this.words.length, histogram, 0); 
+	}
+
+
+	@Override
+	public int getUnitCount() { 
+		return this.words.length; 
+	}
+
+
+	@Override
+	public long getUnitCost(int unit) { 
+		return this.words[unit].length + 1; 
+	}
+
+
+	@Override
+	public void count(DiscreteAutomaton automaton, int first, int last, double[] histogram, int offset) { 
+		for(int i = first; i < last; i++) { 
+			histogram[offset + 2 * automaton.run(this.words[i]) + (this.labels[i] ? 1 : 0)]++; 
+		}
+	}
+
+
+	@Override
+	public String toString() { 
+		return "WordCounter ("+this.words.length+" words). "; 
+	}
+
+}
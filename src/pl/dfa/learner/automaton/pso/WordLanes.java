@@ -0,0 +1,273 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Words of a word set interleaved in blocks of <code>LANES</code> words, for 
+ * a kernel advancing all the words of a block together, one symbol per lane 
+ * and step. The lanes of a block are independent, so the table reads of 
+ * one step do not wait for each other. 
+ * 
+ * Words are grouped by length, so the lanes of a block have mostly the same 
+ * length. The lanes of the shorter words are padded with a symbol that keeps 
+ * every state unchanged, which masks out the words that have already ended 
+ * without any branch in the kernel. The words that do not fill the last block 
+ * are run one by one. The blocks, then the words left, are the units the 
+ * counting can be sharded on. 
+ * 
+ */
+public class WordLanes implements ShardableCounter { 
+
+	/**
+	 * Number of words per block 
+	 */
+	public static final int LANES = 8; 
+
+	/**
+	 * Symbols of the blocks, step after step, <code>LANES</code> symbols per step 
+	 */
+	private int[] symbols; 
+
+	/**
+	 * First symbol of each block, followed by the number of symbols 
+	 */
+	private int[] blockStarts; 
+
+	/**
+	 * Labels of the lanes, 1 for the accepted words and 0 for the others 
+	 */
+	private int[] laneLabels; 
+
+	/**
+	 * Words not filling the last block 
+	 */
+	private int[][] rest; 
+
+	/**
+	 * Labels of the words not filling the last block 
+	 */
+	private int[] restLabels; 
+
+	/**
+	 * Padding symbol, one more than the highest input of the words 
+	 */
+	private int padding; 
+
+	/**
+	 * Tables of the counting threads 
+	 */
+	private ThreadLocal<Tables> tables; 
+
+
+	/**
+	 * Interleaves the words 
+	 * 
+	 * @param words words, as arrays of non negative inputs 
+	 * @param labels word labels, <code>true</code> for the accepted words 
+	 */
+	public WordLanes(final int[][] words, boolean[] labels) { 
+		Integer[] sorted = new Integer[words.length]; 
+		int maxInput = -1; 
+		for(int i = 0; i < words.length; i++) { 
+			sorted[i] = i; 
+			for(int input: words[i]) { 
+				maxInput = Math.max(maxInput, input); 
+			}
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() { 
+			@Override
+			public int compare(Integer first, Integer second) { 
+				return words[first].length - words[second].length; 
+			}
+		}); 
+		this.padding = maxInput + 1; 
+		int blocks = words.length / LANES; 
+		this.blockStarts = new int[blocks + 1]; 
+		this.laneLabels = new int[blocks * LANES]; 
+		int size = 0; 
+		for(int block = 0; block < blocks; block++) { 
+			// the longest word of a block is its last one
+			size += LANES * words[sorted[block * LANES + LANES - 1]].length; 
+		}
+		this.symbols = new int[size]; 
+		int position = 0; 
+		for(int block = 0; block < blocks; block++) { 
+			this.blockStarts[block] = position; 
+			int length = words[sorted[block * LANES + LANES - 1]].length; 
+			for(int lane = 0; lane < LANES; lane++) { 
+				int index = sorted[block * LANES + lane]; 
+				int[] word = words[index]; 
+				for(int step = 0; step < length; step++) { 
+					this.symbols[position + step * LANES + lane] = step < word.length ? word[step] : this.padding; 
+				}
+				this.laneLabels[block * LANES + lane] = labels[index] ? 1 : 0; 
+			}
+			position += length * LANES; 
+		}
+		this.blockStarts[blocks] = position; 
+		this.rest = new int[words.length - blocks * LANES][]; 
+		this.restLabels = new int[this.rest.length]; 
+		for(int i = 0; i < this.rest.length; i++) { 
+			int index = sorted[blocks * LANES + i]; 
+			this.rest[i] = words[index]; 
+			this.restLabels[i] = labels[index] ? 1 : 0; 
+		}
+		this.tables = new ThreadLocal<Tables>() { 
+			@Override
+			protected Tables initialValue() { 
+				return new Tables(); 
+			}
+		}; 
+	}
+
+
+	/**
+	 * @return the number of columns of the tables used by <code>run</code> 
+	 */
+	public int getTableStride() { 
+		return this.padding + 1; 
+	}
+
+
+	/**
+	 * Prepares the table for <code>run</code>: the transitions of an automaton 
+	 * premultiplied by the table stride, so that a row is addressed directly by 
+	 * the state, plus the padding column leading every state to itself. 
+	 * 
+	 * @param automaton discretised solution supporting all the inputs of the words 
+	 * @param table table to fill, at least <code>getStateNumber() * getTableStride()</code> long 
+	 * @param slots histogram index of each row, as long as the table 
+	 */
+	public void fill(DiscreteAutomaton automaton, int[] table, int[] slots) { 
+		int stride = getTableStride(); 
+		int columns = Math.min(automaton.getStride(), this.padding); 
+		int[] source = automaton.getTable(); 
+		for(int state = 0; state < automaton.getStateNumber(); state++) { 
+			int row = state * stride; 
+			for(int input = 0; input < this.padding; input++) { 
+				int next = input < columns ? source[state * automaton.getStride() + input] : -1; 
+				table[row + input] = next < 0 ? -1 : next * stride; 
+			}
+			table[row + this.padding] = row; 
+			slots[row] = 2 * state; 
+		}
+	}
+
+
+	/**
+	 * Counts the final states of all the words. The automaton needs a 
+	 * transition for each state and input of the words. 
+	 * 
+	 * @param automaton discretised solution, only read 
+	 * @param histogram cleared histogram, non accepted and accepted words per state 
+	 */
+	@Override
+	public void count(DiscreteAutomaton automaton, double[] histogram) { 
+		count(automaton, 0, getUnitCount(), histogram, 0); 
+	}
+
+
+	/**
+	 * Counts the final states of the words of a range of units: the blocks 
+	 * first, then the words not filling the last block, one unit each. The 
+	 * table is filled for each range, into the scratch of the calling thread. 
+	 */
+	@Override
+	public void count(DiscreteAutomaton automaton, int first, int last, double[] histogram, int offset) { 
+		Tables tables = this.tables.get(); 
+		int cells = automaton.getStateNumber() * getTableStride(); 
+		if(tables.table.length < cells) { 
+			tables.table = new int[cells]; 
+			tables.slots = new int[cells]; 
+		}
+		int[] table = tables.table; 
+		int[] slots = tables.slots; 
+		fill(automaton, table, slots); 
+		int blocks = this.blockStarts.length - 1; 
+		runBlocks(table, slots, histogram, offset, Math.min(first, blocks), Math.min(last, blocks)); 
+		for(int i = Math.max(first, blocks) - blocks; i < last - blocks; i++) { 
+			int state = 0; 
+			for(int input: this.rest[i]) { 
+				state = table[state + input]; 
+			}
+			histogram[offset + slots[state] + this.restLabels[i]]++; 
+		}
+	}
+
+
+	/**
+	 * Counts the final states of the words of a range of blocks 
+	 */
+	private void runBlocks(int[] table, int[] slots, double[] histogram, int offset, int first, int last) { 
+		int[] symbols = this.symbols; 
+		for(int block = first; block < last; block++) { 
+			int s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0; 
+			for(int p = this.blockStarts[block], end = this.blockStarts[block + 1]; p < end; p += LANES) { 
+				s0 = table[s0 + symbols[p]]; 
+				s1 = table[s1 + symbols[p + 1]]; 
+				s2 = table[s2 + symbols[p + 2]]; 
+				s3 = table[s3 + symbols[p + 3]]; 
+				s4 = table[s4 + symbols[p + 4]]; 
+				s5 = table[s5 + symbols[p + 5]]; 
+				s6 = table[s6 + symbols[p + 6]]; 
+				s7 = table[s7 + symbols[p + 7]]; 
+			}
+			int lane = block * LANES; 
+			histogram[offset + slots[s0] + this.laneLabels[lane]]++; 
+			histogram[offset + slots[s1] + this.laneLabels[lane + 1]]++; 
+			histogram[offset + slots[s2] + this.laneLabels[lane + 2]]++; 
+			histogram[offset + slots[s3] + this.laneLabels[lane + 3]]++; 
+			histogram[offset + slots[s4] + this.laneLabels[lane + 4]]++; 
+			histogram[offset + slots[s5] + this.laneLabels[lane + 5]]++; 
+			histogram[offset + slots[s6] + this.laneLabels[lane + 6]]++; 
+			histogram[offset + slots[s7] + this.laneLabels[lane + 7]]++; 
+		}
+	}
+
+
+	@Override
+	public double size() { 
+		return this.laneLabels.length + this.rest.length; 
+	}
+
+
+	@Override
+	public int getUnitCount() { 
+		return this.blockStarts.length - 1 + this.rest.length; 
+	}
+
+
+	@Override
+	public long getUnitCost(int unit) { 
+		int blocks = this.blockStarts.length - 1; 
+		if(unit < blocks) { 
+			return this.blockStarts[unit + 1] - this.blockStarts[unit] + LANES; 
+		}
+		return this.rest[unit - blocks].length + 1; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "WordLanes ("+(this.blockStarts.length - 1)+" blocks of "+LANES+" words, "
+				+this.rest.length+" words left). "; 
+	}
+
+
+
+	/**
+	 * Table of an automaton prepared by <code>fill</code>, with its histogram indexes 
+	 */
+	private static class Tables { 
+
+		int[] table = new int[0]; 
+
+		int[] slots = new int[0]; 
+	}
+
+}
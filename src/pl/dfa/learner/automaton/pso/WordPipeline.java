@@ -0,0 +1,213 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Words produced on a separate thread and handed over in batches through a 
+ * bounded queue, so that the search can start on the first (shortest) words 
+ * while the longer ones are still being generated. The producer waits as 
+ * soon as <code>capacity</code> batches are waiting, so at most 
+ * <code>capacity</code> batches are held besides the consumed words. 
+ * 
+ */
+public class WordPipeline implements Closeable { 
+
+	/**
+	 * Default number of words per batch 
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024; 
+
+	/**
+	 * Default number of batches waiting in the queue 
+	 */
+	public static final int DEFAULT_CAPACITY = 16; 
+
+	/**
+	 * Batch marking the end of the words 
+	 */
+	private static final List<LabeledWord> END = Collections.emptyList(); 
+
+	/**
+	 * Batches waiting to be consumed 
+	 */
+	private BlockingQueue<List<LabeledWord>> queue; 
+
+	/**
+	 * Producer thread 
+	 */
+	private Thread producer; 
+
+	/**
+	 * Failure of the producer, <code>null</code> if none 
+	 */
+	private volatile RuntimeException failure; 
+
+	/**
+	 * Set once the end of the words was consumed 
+	 */
+	private boolean finished; 
+
+
+	/**
+	 * Starts generating the words of <code>generateWordSet(maxWordLength, maxElements)</code>, 
+	 * shortest first 
+	 * 
+	 * @param generator word set generator 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
+	 */
+	public WordPipeline(WordSetGenerator generator, int maxWordLength, long maxElements) { 
+		this(generator.iterator(maxWordLength, maxElements), DEFAULT_BATCH_SIZE, DEFAULT_CAPACITY); 
+	}
+
+
+	/**
+	 * Starts producing the words of an iterator 
+	 * 
+	 * @param words labeled words, only used by the producer thread 
+	 * @param batchSize number of words per batch 
+	 * @param capacity number of batches that may wait in the queue 
+	 */
+	public WordPipeline(final Iterator<LabeledWord> words, final int batchSize, int capacity) { 
+		if(batchSize < 1 || capacity < 1) { 
+			throw new IllegalArgumentException("Batch size and capacity need to be positive: "+batchSize+", "+capacity); 
+		}
+		this.queue = new ArrayBlockingQueue<List<LabeledWord>>(capacity); 
+		this.producer = new Thread(new Runnable() { 
+			@Override
+			public void run() { 
+				produce(words, batchSize); 
+			}
+		}, "WordPipeline"); 
+		this.producer.setDaemon(true); 
+		this.producer.start(); 
+	}
+
+
+	/**
+	 * Puts the words into the queue, batch after batch, then the end marker 
+	 */
+	private void produce(Iterator<LabeledWord> words, int batchSize) { 
+		try { 
+			try { 
+				List<LabeledWord> batch = new ArrayList<LabeledWord>(batchSize); 
+				while(words.hasNext() && !Thread.currentThread().isInterrupted()) { 
+					batch.add(words.next()); 
+					if(batch.size() == batchSize) { 
+						this.queue.put(batch); 
+						batch = new ArrayList<LabeledWord>(batchSize); 
+					}
+				}
+				if(!batch.isEmpty()) { 
+					this.queue.put(batch); 
+				}
+			} catch (RuntimeException e) { 
+				this.failure = e; 
+			}
+			this.queue.put(END); 
+		} catch (InterruptedException e) { 
+			// closed by the consumer
+		}
+	}
+
+
+	/**
+	 * Adds the words of the waiting batches to a word set 
+	 * 
+	 * @param wordSet word set to add the words to 
+	 * @param wait <code>true</code> to wait for a batch if none is waiting 
+	 * 			and the words have not all been consumed yet
+	 * @return number of added words 
+	 * @throws IllegalStateException if the producer failed 
+	 */
+	public int drain(WordSet wordSet, boolean wait) { 
+		return drain(wordSet, wait ? Long.MAX_VALUE : 0); 
+	}
+
+
+	/**
+	 * Adds the words of the waiting batches to a word set, waiting at most 
+	 * <code>timeoutMillis</code> for a batch if none is waiting 
+	 * 
+	 * @param wordSet word set to add the words to 
+	 * @param timeoutMillis longest wait for a batch, 0 not to wait 
+	 * @return number of added words, 0 if the wait timed out 
+	 * @throws IllegalStateException if the producer failed 
+	 */
+	public int drain(WordSet wordSet, long timeoutMillis) { 
+		int added = 0; 
+		List<LabeledWord> batch = null; 
+		while(!this.finished) { 
+			if(timeoutMillis > 0 && added == 0) { 
+				try { 
+					batch = this.queue.poll(timeoutMillis, TimeUnit.MILLISECONDS); 
+				} catch (InterruptedException e) { 
+					Thread.currentThread().interrupt(); 
+					return added; 
+				}
+				if(batch == null) { 
+					break; 
+				}
+			} else { 
+				batch = this.queue.poll(); 
+				if(batch == null) { 
+					break; 
+				}
+			}
+			if(batch == END) { 
+				this.finished = true; 
+				if(this.failure != null) { 
+					throw new IllegalStateException("The word generation failed", this.failure); 
+				}
+				break; 
+			}
+			for(LabeledWord word: batch) { 
+				if(word.addTo(wordSet)) { 
+					added++; 
+				}
+			}
+		}
+		return added; 
+	}
+
+
+	/**
+	 * @return <code>true</code> once all the words were consumed 
+	 */
+	public boolean isFinished() { 
+		return this.finished; 
+	}
+
+
+	/**
+	 * Stops the producer, the words not consumed yet are dropped 
+	 */
+	@Override
+	public void close() { 
+		this.producer.interrupt(); 
+		try { 
+			this.producer.join(); 
+		} catch (InterruptedException e) { 
+			Thread.currentThread().interrupt(); 
+		}
+		this.queue.clear(); 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "WordPipeline ("+this.queue.size()+" batches waiting"+(this.finished ? ", finished" : "")+"). "; 
+	}
+
+}
@@ -0,0 +1,254 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Random;
+import java.util.Set;
+
+import pl.dfa.learner.automaton.DFA;
+
+
+/**
+ * Draws words of length 1 to <code>maxWordLength</code> uniformly at random, 
+ * among all the words of a length or among the accepted or non accepted ones, 
+ * labelled by a reference automaton. 
+ * 
+ * The number of accepted words of each remaining length is counted from each 
+ * reference state beforehand, then a word is drawn input by input, each input 
+ * being chosen with the probability of the words continuing with it. A word 
+ * costs O(<i>L</i>&middot;|&Sigma;|) steps, whatever the number of words of 
+ * its length, so representative samples of any size can be drawn where the 
+ * enumeration of <code>WordSetGenerator</code> is infeasible. 
+ * 
+ * Counts are kept as <code>double</code> values, like in <code>ExhaustiveSample</code>: 
+ * the draws are exactly uniform up to 2<sup>53</sup> words per length and 
+ * accurate to the last bits above that. 
+ * 
+ */
+public class WordSampler { 
+
+	/**
+	 * Reference automaton, the initial state being the state 0 
+	 */
+	private DiscreteAutomaton reference; 
+
+	/**
+	 * Highest word length 
+	 */
+	private int maxWordLength; 
+
+	/**
+	 * Inputs of the reference automaton, in increasing order 
+	 */
+	private int[] alphabet; 
+
+	/**
+	 * Number of accepted words of each length from each state, 
+	 * by length then state 
+	 */
+	private double[][] acceptedWords; 
+
+	/**
+	 * Number of words of each length 
+	 */
+	private double[] words; 
+
+
+	/**
+	 * Counts the words of a reference automaton 
+	 * 
+	 * @param dfa reference automaton, with a transition for each state and input 
+	 * @param maxWordLength highest word length 
+	 */
+	public WordSampler(DFA dfa, int maxWordLength) { 
+		if(maxWordLength < 1) { 
+			throw new IllegalArgumentException("The words need to be at least one input long, maxWordLength: "+maxWordLength); 
+		}
+		this.reference = new DiscreteAutomaton(); 
+		this.reference.load(dfa); 
+		this.maxWordLength = maxWordLength; 
+		Set<Integer> inputs = dfa.getInputs(); 
+		this.alphabet = new int[inputs.size()]; 
+		int index = 0; 
+		for(Integer input: inputs) { 
+			this.alphabet[index++] = input; 
+		}
+		int m = this.reference.getStateNumber(); 
+		for(int state = 0; state < m; state++) { 
+			for(int input: this.alphabet) { 
+				if(this.reference.getTable()[state * this.reference.getStride() + input] < 0) { 
+					throw new IllegalArgumentException("The reference automaton needs a transition for each state and input, "
+							+"missing input: "+input); 
+				}
+			}
+		}
+		this.acceptedWords = new double[maxWordLength + 1][m]; 
+		for(int state = 0; state < m; state++) { 
+			this.acceptedWords[0][state] = this.reference.isAccepted(state) ? 1 : 0; 
+		}
+		this.words = new double[maxWordLength + 1]; 
+		this.words[0] = 1; 
+		for(int length = 1; length <= maxWordLength; length++) { 
+			for(int state = 0; state < m; state++) { 
+				double count = 0; 
+				for(int input: this.alphabet) { 
+					count += this.acceptedWords[length - 1][this.reference.getTransition(state, input)]; 
+				}
+				this.acceptedWords[length][state] = count; 
+			}
+			this.words[length] = this.words[length - 1] * this.alphabet.length; 
+		}
+	}
+
+
+	/**
+	 * Counts the words of a length 
+	 * 
+	 * @param length word length, 1 to <code>getMaxWordLength()</code> 
+	 * @param accepted <code>true</code> to count the accepted words, 
+	 * 			<code>false</code> for the non accepted ones
+	 * @return number of words of the length with that label 
+	 */
+	public double count(int length, boolean accepted) { 
+		checkLength(length); 
+		double acceptedCount = this.acceptedWords[length][0]; 
+		return accepted ? acceptedCount : this.words[length] - acceptedCount; 
+	}
+
+
+	/**
+	 * Draws a word uniformly among all the words of a length 
+	 * 
+	 * @param length word length, 1 to <code>getMaxWordLength()</code> 
+	 * @param random random number generator 
+	 * @return drawn word 
+	 */
+	public LabeledWord sample(int length, Random random) { 
+		checkLength(length); 
+		int[] word = new int[length]; 
+		int state = 0; 
+		for(int i = 0; i < length; i++) { 
+			word[i] = this.alphabet[random.nextInt(this.alphabet.length)]; 
+			state = this.reference.getTransition(state, word[i]); 
+		}
+		return new LabeledWord(word, this.reference.isAccepted(state)); 
+	}
+
+
+	/**
+	 * Draws a word uniformly among the words of a length having a label 
+	 * 
+	 * @param length word length, 1 to <code>getMaxWordLength()</code> 
+	 * @param accepted label of the word 
+	 * @param random random number generator 
+	 * @return drawn word 
+	 * @throws IllegalArgumentException if no word of the length has the label 
+	 */
+	public LabeledWord sample(int length, boolean accepted, Random random) { 
+		if(count(length, accepted) == 0) { 
+			throw new IllegalArgumentException("No "+(accepted ? "accepted" : "non accepted")+" word of length "+length); 
+		}
+		int[] word = new int[length]; 
+		int state = 0; 
+		for(int i = 0; i < length; i++) { 
+			int remaining = length - i - 1; 
+			double total = countFrom(state, remaining + 1, accepted); 
+			double draw = random.nextDouble() * total; 
+			int chosen = -1; 
+			for(int k = 0; k < this.alphabet.length; k++) { 
+				double continuations = countFrom(this.reference.getTransition(state, this.alphabet[k]), remaining, accepted); 
+				if(continuations == 0) { 
+					continue; 
+				}
+				chosen = k; 
+				draw -= continuations; 
+				if(draw < 0) { 
+					break; 
+				}
+			}
+			// the last input with continuations absorbs the rounding errors
+			word[i] = this.alphabet[chosen]; 
+			state = this.reference.getTransition(state, word[i]); 
+		}
+		return new LabeledWord(word, accepted); 
+	}
+
+
+	/**
+	 * Draws a word set of <code>size</code> distinct words, spread evenly over 
+	 * the lengths: each length gets its share of the words left, or all its 
+	 * words if it has fewer, the rest going to the longer lengths. 
+	 * 
+	 * @param size number of words, at most the number of words of length 1 to 
+	 * 			<code>getMaxWordLength()</code>
+	 * @param stratified <code>true</code> to draw as many accepted as non accepted 
+	 * 			words of each length, as far as the length has enough of both
+	 * @param random random number generator 
+	 * @return drawn word set 
+	 */
+	public WordSet generateWordSet(long size, boolean stratified, Random random) { 
+		WordSet wordSet = new WordSet(); 
+		long left = size; 
+		for(int length = 1; length <= this.maxWordLength && left > 0; length++) { 
+			long share = (long) Math.min(this.words[length], Math.ceil((double) left / (this.maxWordLength - length + 1))); 
+			if(stratified) { 
+				long accepted = (long) Math.min(count(length, true), Math.max(share / 2, share - count(length, false))); 
+				addSamples(wordSet, length, accepted, Boolean.TRUE, random); 
+				addSamples(wordSet, length, share - accepted, Boolean.FALSE, random); 
+			} else { 
+				addSamples(wordSet, length, share, null, random); 
+			}
+			left -= share; 
+		}
+		return wordSet; 
+	}
+
+
+	/**
+	 * Adds distinct words of a length to a word set, drawing again the words 
+	 * already in the set 
+	 * 
+	 * @param label label of the words, <code>null</code> for any label 
+	 */
+	private void addSamples(WordSet wordSet, int length, long number, Boolean label, Random random) { 
+		for(long added = 0; added < number; ) { 
+			LabeledWord word = label == null ? sample(length, random) : sample(length, label, random); 
+			if(wordSet.indexOf(word.getWord(), length) < 0) { 
+				word.addTo(wordSet); 
+				added++; 
+			}
+		}
+	}
+
+
+	/**
+	 * Counts the words of a length leading from a state to a label 
+	 */
+	private double countFrom(int state, int length, boolean accepted) { 
+		double acceptedCount = this.acceptedWords[length][state]; 
+		return accepted ? acceptedCount : this.words[length] - acceptedCount; 
+	}
+
+
+	private void checkLength(int length) { 
+		if(length < 1 || length > this.maxWordLength) { 
+			throw new IllegalArgumentException("Word length out of 1 to "+this.maxWordLength+": "+length); 
+		}
+	}
+
+
+	/**
+	 * @return the highest word length 
+	 */
+	public int getMaxWordLength() { 
+		return this.maxWordLength; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "WordSampler ("+this.alphabet.length+" inputs, lengths 1 to "+this.maxWordLength+"). "; 
+	}
+
+}
@@ -3,9 +3,13 @@
  */
 package pl.dfa.learner.automaton.pso;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
@@ -15,28 +19,104 @@ import org.apache.logging.log4j.Logger;
  * Set of a words, used to represent learning or testing set. 
  * Divided into accepted and non accepted words 
  *
+ * The words are packed one after another into a single array of inputs, 
+ * with the start of each word in a second array and the labels in a bit set. 
+ * The inputs take a byte each as long as they are between 0 and 127. 
+ * Duplicates are found by an open addressing index of 64 bit fingerprints of 
+ * the words, so adding a word does not allocate anything once the arrays are 
+ * large enough: the inputs of a list are copied into a buffer kept for the 
+ * next insert, and the lookups hash the list itself. The words are numbered 
+ * in the order they were added; the accepted and non accepted words are 
+ * available as read only views, through <code>getAccepted</code> and 
+ * <code>getNonAccepted</code>. 
+ * 
  */
 public class WordSet {
 
 	/**
-	 * accepted words 
+	 * accepted words (read only view) 
 	 */
-	public Set<List<Integer>> accepted; 
+	private Set<List<Integer>> accepted; 
 	
 	/**
-	 * Non accepted words 
+	 * Non accepted words (read only view) 
+	 */
+	private Set<List<Integer>> nonAccepted; 
+
+	/**
+	 * Inputs of all the words, word after word, while all of them fit in a byte 
+	 */
+	private byte[] narrowSymbols; 
+
+	/**
+	 * Inputs of all the words, word after word, <code>null</code> while 
+	 * <code>narrowSymbols</code> is used 
+	 */
+	private int[] symbols; 
+
+	/**
+	 * Number of used inputs in <code>symbols</code> 
+	 */
+	private int symbolCount; 
+
+	/**
+	 * First input of each word, followed by <code>symbolCount</code> 
+	 */
+	private int[] offsets; 
+
+	/**
+	 * Labels of the words, set for the accepted words 
 	 */
-	public Set<List<Integer>> nonAccepted; 
+	private BitSet labels; 
+
+	/**
+	 * Number of words 
+	 */
+	private int count; 
+
+	/**
+	 * Number of accepted words 
+	 */
+	private int acceptedCount; 
+
+	/**
+	 * Fingerprints of the indexed words, by slot 
+	 */
+	private long[] fingerprints; 
+
+	/**
+	 * Word number plus one in each slot of the index, 0 for the empty slots 
+	 */
+	private int[] slots; 
+
+	/**
+	 * Inputs of the list being added, reused from one insert to the next 
+	 */
+	private int[] insertBuffer; 
+
 	
 	private static final Logger logger = LogManager.getLogger(WordSet.class); 
+
+	/**
+	 * Initial value and multiplier of the fingerprints (64 bit FNV) 
+	 */
+	private static final long FINGERPRINT_BASIS = 0xcbf29ce484222325L; 
+
+	private static final long FINGERPRINT_PRIME = 0x100000001b3L; 
 	
 	
 	/**
 	 * Initialises an empty word set 
 	 */
 	public WordSet() { 
-		this.accepted = new LinkedHashSet<List<Integer>>(); 
-		this.nonAccepted = new LinkedHashSet<List<Integer>>(); 
+		this.narrowSymbols = new byte[64]; 
+		this.offsets = new int[17]; 
+		this.labels = new BitSet(); 
+		this.fingerprints = new long[32]; 
+		this.slots = new int[32]; 
+		this.insertBuffer = new int[16]; 
+		this.accepted = new LabelView(true); 
+		this.nonAccepted = new LabelView(false); 
 	} 
 	
 	
@@ -46,17 +126,7 @@ public class WordSet {
 	 * @param acceptedWord word to add 
 	 */
 	public void addAccepted(List<Integer> acceptedWord) { 
-		if(this.accepted.contains(acceptedWord)) { 
-			logger.warn("Duplicate word added "+acceptedWord+", "+
-					this.accepted); 
-			return; 
-		} 
-		if(this.accepted.contains(acceptedWord)) { 
-			logger.warn("Duplicate, accepted word already added to nonAccepted "
-					+acceptedWord+", "+nonAccepted); 
-			return; 
-		} 
-		this.accepted.add(acceptedWord); 
+		add(toInsertBuffer(acceptedWord), acceptedWord.size(), true); 
 	} 
 	
 	
@@ -66,17 +136,238 @@ public class WordSet {
 	 * @param nonAcceptedWord word to add 
 	 */
 	public void addNonAccepted(List<Integer> nonAcceptedWord) { 
-		if(this.nonAccepted.contains(nonAcceptedWord)) { 
-			logger.warn("Duplicate word added "+nonAcceptedWord+", "+
-					this.nonAccepted); 
-			return; 
+		add(toInsertBuffer(nonAcceptedWord), nonAcceptedWord.size(), false); 
+	}
+
+
+	/**
+	 * Adds a word, unless it is already in the set 
+	 * 
+	 * @param word inputs of the word 
+	 * @param length length of the word, the first inputs of <code>word</code> being used 
+	 * @param isAccepted <code>true</code> if the word is accepted 
+	 * @return <code>true</code> if the word was added 
+	 */
+	public boolean add(int[] word, int length, boolean isAccepted) { 
+		long fingerprint = fingerprint(word, length); 
+		long slot = findSlot(word, length, fingerprint); 
+		if(isDuplicate(slot, word, length, isAccepted)) { 
+			return false; 
 		} 
-		if(this.accepted.contains(nonAcceptedWord)) { 
-			logger.warn("Duplicate, non accepted word added to Accepted "
-					+nonAcceptedWord+", "+nonAccepted); 
-			return; 
+		reserve(word, length); 
+		if(this.count + 2 > this.offsets.length) { 
+			this.offsets = Arrays.copyOf(this.offsets, 2 * this.offsets.length); 
 		} 
-		this.nonAccepted.add(nonAcceptedWord); 
+		if(this.symbols == null) { 
+			for(int i = 0; i < length; i++) { 
+				this.narrowSymbols[this.symbolCount + i] = (byte) word[i]; 
+			}
+		} else { 
+			System.arraycopy(word, 0, this.symbols, this.symbolCount, length); 
+		}
+		this.offsets[this.count] = this.symbolCount; 
+		this.symbolCount += length; 
+		this.offsets[this.count + 1] = this.symbolCount; 
+		if(isAccepted) { 
+			this.labels.set(this.count); 
+			this.acceptedCount++; 
+		}
+		this.count++; 
+		index(slot, fingerprint, this.count); 
+		return true; 
+	}
+
+
+	/**
+	 * Appends words known to be distinct from each other and from the words 
+	 * of the set, e.g. generated blocks of words, without looking them up. 
+	 * 
+	 * @param words inputs of the words, word after word 
+	 * @param length length of each word 
+	 * @param number number of words 
+	 * @param labels labels of the words, <code>true</code> for the accepted ones 
+	 * @param wordFingerprints fingerprints of the words (see <code>fingerprint</code>) 
+	 */
+	void addDistinct(int[] words, int length, int number, boolean[] labels, long[] wordFingerprints) { 
+		reserve(words, length * number); 
+		if(this.count + number + 1 > this.offsets.length) { 
+			this.offsets = Arrays.copyOf(this.offsets, Math.max(2 * this.offsets.length, this.count + number + 1)); 
+		}
+		if(this.symbols == null) { 
+			for(int i = 0; i < length * number; i++) { 
+				this.narrowSymbols[this.symbolCount + i] = (byte) words[i]; 
+			}
+		} else { 
+			System.arraycopy(words, 0, this.symbols, this.symbolCount, length * number); 
+		}
+		for(int i = 0; i < number; i++) { 
+			this.offsets[this.count] = this.symbolCount; 
+			this.symbolCount += length; 
+			if(labels[i]) { 
+				this.labels.set(this.count); 
+				this.acceptedCount++; 
+			}
+			this.count++; 
+			indexDistinct(wordFingerprints[i], this.count); 
+		}
+		this.offsets[this.count] = this.symbolCount; 
+	}
+
+
+	/**
+	 * Finds a word 
+	 * 
+	 * @param word inputs of the word 
+	 * @param length length of the word 
+	 * @return number of the word, -1 if the word is not in the set 
+	 */
+	public long indexOf(int[] word, int length) { 
+		long slot = findSlot(word, length, fingerprint(word, length)); 
+		return getSlotWord(slot) - 1; 
+	}
+
+
+	/**
+	 * Checks if a word is in the set, whatever its label 
+	 * 
+	 * @param word word to find 
+	 * @return <code>true</code> if the word is in the set 
+	 */
+	public boolean contains(List<Integer> word) { 
+		return indexOf(word) >= 0; 
+	}
+
+
+	/**
+	 * Finds a word given as a list, hashing the list itself so that concurrent 
+	 * reads of the set do not share any buffer 
+	 * 
+	 * @param word inputs of the word 
+	 * @return number of the word, -1 if the word is not in the set or an 
+	 * element is not an <code>Integer</code> 
+	 */
+	long indexOf(List<?> word) { 
+		long h = FINGERPRINT_BASIS ^ word.size(); 
+		for(Object input: word) { 
+			if(!(input instanceof Integer)) { 
+				return -1; 
+			}
+			h = (h ^ (Integer) input) * FINGERPRINT_PRIME; 
+		}
+		long fingerprint = h ^ (h >>> 31); 
+		long mask = getIndexCapacity() - 1; 
+		long slot = (fingerprint ^ (fingerprint >>> 32)) & mask; 
+		long number; 
+		while((number = getSlotWord(slot)) != 0) { 
+			if(getSlotFingerprint(slot) == fingerprint && matches(number - 1, word)) { 
+				return number - 1; 
+			}
+			slot = (slot + 1) & mask; 
+		}
+		return -1; 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return <code>true</code> if the word is accepted 
+	 */
+	public boolean isAccepted(int index) { 
+		return this.labels.get(index); 
+	}
+
+
+	/**
+	 * @return the number of accepted words 
+	 */
+	public long getAcceptedCount() { 
+		return this.acceptedCount; 
+	}
+
+
+	/**
+	 * Finds the next word with a label 
+	 * 
+	 * @param from number of the first word to check 
+	 * @param isAccepted label to look for 
+	 * @return number of the word, -1 if there is none 
+	 */
+	protected int nextWord(int from, boolean isAccepted) { 
+		int index = isAccepted ? this.labels.nextSetBit(from) : this.labels.nextClearBit(from); 
+		return index >= 0 && index < this.count ? index : -1; 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return length of the word 
+	 */
+	public int getLength(int index) { 
+		return this.offsets[index + 1] - this.offsets[index]; 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @param position position in the word 
+	 * @return input of the word at the position 
+	 */
+	public int getInput(int index, int position) { 
+		return symbolAt(this.offsets[index] + position); 
+	}
+
+
+	/**
+	 * Copies the inputs of a word 
+	 * 
+	 * @param index number of a word 
+	 * @param destination array to copy the word to, at least <code>getLength(index)</code> long 
+	 * @return length of the word 
+	 */
+	public int copyWord(int index, int[] destination) { 
+		int length = getLength(index); 
+		int offset = this.offsets[index]; 
+		if(this.symbols == null) { 
+			for(int i = 0; i < length; i++) { 
+				destination[i] = this.narrowSymbols[offset + i]; 
+			}
+		} else { 
+			System.arraycopy(this.symbols, offset, destination, 0, length); 
+		}
+		return length; 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return a copy of the inputs of the word 
+	 */
+	public int[] getWord(int index) { 
+		int[] word = new int[getLength(index)]; 
+		copyWord(index, word); 
+		return word; 
+	}
+
+
+	/**
+	 * @param index number of a word 
+	 * @return read only view of the word 
+	 */
+	public List<Integer> getWordList(final int index) { 
+		return new AbstractList<Integer>() { 
+			@Override
+			public Integer get(int position) { 
+				if(position < 0 || position >= size()) { 
+					throw new IndexOutOfBoundsException("Position: "+position+", length: "+size()); 
+				}
+				return getInput(index, position); 
+			}
+
+			@Override
+			public int size() { 
+				return getLength(index); 
+			}
+		}; 
 	} 
 	
 	
@@ -105,7 +396,249 @@ public class WordSet {
 	 * @return number of words 
 	 */
 	public long size() { 
-		return this.accepted.size() + this.nonAccepted.size();
+		return this.count; 
+	}
+
+
+	/**
+	 * Computes the 64 bit fingerprint of a word 
+	 */
+	static long fingerprint(int[] word, int length) { 
+		return fingerprint(word, 0, length); 
+	}
+
+
+	/**
+	 * Computes the 64 bit fingerprint of a word stored from <code>offset</code> 
+	 */
+	static long fingerprint(int[] words, int offset, int length) { 
+		long h = FINGERPRINT_BASIS ^ length; 
+		for(int i = offset; i < offset + length; i++) { 
+			h = (h ^ words[i]) * FINGERPRINT_PRIME; 
+		}
+		return h ^ (h >>> 31); 
+	}
+
+
+	/**
+	 * Finds the slot of a word in the index (linear probing) 
+	 * 
+	 * @return slot of the word or the empty slot it would take 
+	 */
+	long findSlot(int[] word, int length, long fingerprint) { 
+		long mask = getIndexCapacity() - 1; 
+		long slot = (fingerprint ^ (fingerprint >>> 32)) & mask; 
+		long number; 
+		while((number = getSlotWord(slot)) != 0) { 
+			if(getSlotFingerprint(slot) == fingerprint && matches(number - 1, word, length)) { 
+				return slot; 
+			}
+			slot = (slot + 1) & mask; 
+		}
+		return slot; 
+	}
+
+
+	/**
+	 * Checks if the slot of a word is taken, warning about the duplicate 
+	 * 
+	 * @param slot slot found for the word 
+	 * @return <code>true</code> if the word is already in the set 
+	 */
+	boolean isDuplicate(long slot, int[] word, int length, boolean isAccepted) { 
+		long number = getSlotWord(slot); 
+		if(number == 0) { 
+			return false; 
+		}
+		if(isAcceptedWord(number - 1) == isAccepted) { 
+			logger.warn("Duplicate word added "+Arrays.toString(Arrays.copyOf(word, length))); 
+		} else { 
+			logger.warn("Duplicate, "+(isAccepted ? "accepted" : "non accepted")+" word already added to "
+					+(isAccepted ? "nonAccepted " : "accepted ")+Arrays.toString(Arrays.copyOf(word, length))); 
+		}
+		return true; 
+	}
+
+
+	/**
+	 * Puts a word into its empty slot of the index, growing the index if needed 
+	 * 
+	 * @param slot empty slot found for the word 
+	 * @param fingerprint fingerprint of the word 
+	 * @param number number of the word plus one 
+	 */
+	void index(long slot, long fingerprint, long number) { 
+		setSlot(slot, fingerprint, number); 
+		if(4 * number > 3 * getIndexCapacity()) { 
+			rehash(); 
+		}
+	}
+
+
+	/**
+	 * Puts a word known not to be in the index into the first empty slot 
+	 * 
+	 * @param fingerprint fingerprint of the word 
+	 * @param number number of the word plus one 
+	 */
+	void indexDistinct(long fingerprint, long number) { 
+		long mask = getIndexCapacity() - 1; 
+		long slot = (fingerprint ^ (fingerprint >>> 32)) & mask; 
+		while(getSlotWord(slot) != 0) { 
+			slot = (slot + 1) & mask; 
+		}
+		index(slot, fingerprint, number); 
+	}
+
+
+	/**
+	 * @return number of slots of the index, a power of two 
+	 */
+	long getIndexCapacity() { 
+		return this.slots.length; 
+	}
+
+
+	/**
+	 * @return number plus one of the word in a slot of the index, 0 for an empty slot 
+	 */
+	long getSlotWord(long slot) { 
+		return this.slots[(int) slot]; 
+	}
+
+
+	/**
+	 * @return fingerprint of the word in a slot of the index 
+	 */
+	long getSlotFingerprint(long slot) { 
+		return this.fingerprints[(int) slot]; 
+	}
+
+
+	/**
+	 * Fills a slot of the index 
+	 */
+	void setSlot(long slot, long fingerprint, long number) { 
+		this.fingerprints[(int) slot] = fingerprint; 
+		this.slots[(int) slot] = (int) number; 
+	}
+
+
+	/**
+	 * @return <code>true</code> if the word of a slot of the index is accepted 
+	 */
+	boolean isAcceptedWord(long index) { 
+		return isAccepted((int) index); 
+	}
+
+
+	/**
+	 * Compares a stored word with the given inputs, in case two words share a fingerprint 
+	 */
+	boolean matches(long index, int[] word, int length) { 
+		if(getLength((int) index) != length) { 
+			return false; 
+		}
+		int offset = this.offsets[(int) index]; 
+		for(int i = 0; i < length; i++) { 
+			if(symbolAt(offset + i) != word[i]) { 
+				return false; 
+			}
+		}
+		return true; 
+	}
+
+
+	/**
+	 * Compares a stored word with the elements of a list 
+	 */
+	boolean matches(long index, List<?> word) { 
+		if(getLength((int) index) != word.size()) { 
+			return false; 
+		}
+		int position = 0; 
+		for(Object input: word) { 
+			if(getInput((int) index, position++) != (Integer) input) { 
+				return false; 
+			}
+		}
+		return true; 
+	}
+
+
+	private int symbolAt(int position) { 
+		return this.symbols == null ? this.narrowSymbols[position] : this.symbols[position]; 
+	}
+
+
+	/**
+	 * Makes room for a word, or for words packed one after another, widening 
+	 * the inputs to <code>int</code> if an input does not fit in a byte 
+	 */
+	private void reserve(int[] word, int length) { 
+		int needed = this.symbolCount + length; 
+		if(this.symbols == null) { 
+			boolean narrow = true; 
+			for(int i = 0; i < length && narrow; i++) { 
+				narrow = word[i] >= 0 && word[i] <= Byte.MAX_VALUE; 
+			}
+			if(narrow) { 
+				if(needed > this.narrowSymbols.length) { 
+					this.narrowSymbols = Arrays.copyOf(this.narrowSymbols, Math.max(2 * this.narrowSymbols.length, needed)); 
+				}
+				return; 
+			}
+			this.symbols = new int[Math.max(this.narrowSymbols.length, needed)]; 
+			for(int i = 0; i < this.symbolCount; i++) { 
+				this.symbols[i] = this.narrowSymbols[i]; 
+			}
+			this.narrowSymbols = null; 
+		}
+		if(needed > this.symbols.length) { 
+			this.symbols = Arrays.copyOf(this.symbols, Math.max(2 * this.symbols.length, needed)); 
+		}
+	}
+
+
+	/**
+	 * Doubles the index 
+	 */
+	void rehash() { 
+		long[] fingerprints = this.fingerprints; 
+		int[] slots = this.slots; 
+		this.fingerprints = new long[2 * fingerprints.length]; 
+		this.slots = new int[2 * slots.length]; 
+		int mask = this.slots.length - 1; 
+		for(int i = 0; i < slots.length; i++) { 
+			if(slots[i] == 0) { 
+				continue; 
+			}
+			int slot = (int) (fingerprints[i] ^ (fingerprints[i] >>> 32)) & mask; 
+			while(this.slots[slot] != 0) { 
+				slot = (slot + 1) & mask; 
+			}
+			this.fingerprints[slot] = fingerprints[i]; 
+			this.slots[slot] = slots[i]; 
+		}
+	}
+
+
+	/**
+	 * Copies the inputs of a list into the insert buffer, growing it if needed. 
+	 * Only the inserts use the buffer, they are not concurrent with any other 
+	 * access to the set. 
+	 * 
+	 * @return the insert buffer 
+	 */
+	private int[] toInsertBuffer(List<Integer> word) { 
+		if(this.insertBuffer.length < word.size()) { 
+			this.insertBuffer = new int[Math.max(word.size(), 2 * this.insertBuffer.length)]; 
+		}
+		int i = 0; 
+		for(Integer input: word) { 
+			this.insertBuffer[i++] = input; 
+		}
+		return this.insertBuffer; 
 	} 
 	
 	
@@ -156,4 +689,68 @@ public class WordSet {
 		return builder.toString(); 
 	} 
 	
+
+	/**
+	 * Read only view of the words with one label, in the order they were added 
+	 */
+	private class LabelView extends AbstractSet<List<Integer>> { 
+
+		private boolean isAccepted; 
+
+
+		LabelView(boolean isAccepted) { 
+			this.isAccepted = isAccepted; 
+		}
+
+
+		@Override
+		public Iterator<List<Integer>> iterator() { 
+			return new Iterator<List<Integer>>() { 
+
+				private int next = find(0); 
+
+				@Override
+				public boolean hasNext() { 
+					return this.next >= 0; 
+				}
+
+				@Override
+				public List<Integer> next() { 
+					if(this.next < 0) { 
+						throw new NoSuchElementException(); 
+					}
+					List<Integer> word = getWordList(this.next); 
+					this.next = find(this.next + 1); 
+					return word; 
+				}
+			}; 
+		}
+
+
+		/**
+		 * Finds the next word with the label of this view 
+		 */
+		private int find(int from) { 
+			return nextWord(from, this.isAccepted); 
+		}
+
+
+		@Override
+		public int size() { 
+			long accepted = getAcceptedCount(); 
+			long size = this.isAccepted ? accepted : WordSet.this.size() - accepted; 
+			return (int) Math.min(size, Integer.MAX_VALUE); 
+		}
+
+
+		@Override
+		public boolean contains(Object object) { 
+			if(!(object instanceof List)) { 
+				return false; 
+			}
+			long index = indexOf((List<?>) object); 
+			return index >= 0 && isAcceptedWord(index) == this.isAccepted; 
+		}
+	}
+
 }
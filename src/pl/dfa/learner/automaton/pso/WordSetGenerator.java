@@ -3,13 +3,18 @@
  */
 package pl.dfa.learner.automaton.pso;
 
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import pl.dfa.learner.automaton.ComputeResults;
-import pl.dfa.learner.automaton.DFAComputer;
 import pl.dfa.learner.automaton.DFA;
 
 /**
@@ -22,14 +27,14 @@ import pl.dfa.learner.automaton.DFA;
 public class WordSetGenerator {
 
 	/**
-	 * Reference automaton 
+	 * Number of prefixes generated in parallel per thread of the pool 
 	 */
-	private DFA automaton; 
-	
+	private static final int TASKS_PER_THREAD = 4; 
+
 	/**
-	 * Reference automaton state computer 
+	 * Reference automaton 
 	 */
-	private DFAComputer computer; 
+	private DFA automaton; 
 	
 	/**
 	 * Set of allowed inputs 
@@ -45,7 +50,6 @@ public class WordSetGenerator {
 	public WordSetGenerator(DFA automaton) { 
 		this.automaton = automaton; 
 		this.inputs = automaton.getInputs(); 
-		this.computer = new DFAComputer(automaton); 
 	} 
 	
 	
@@ -62,84 +66,639 @@ public class WordSetGenerator {
 	
 	/**
 	 * Generates WordSet having words up to <code>maxWordLength</code> in length 
-	 * and having at most <code>maxElements</code> words 
+	 * and having at most <code>maxElements</code> words. The words of each length 
+	 * extend the words of the previous one, whose reference states are kept in 
+	 * the frontier, so each word costs a single transition. 
 	 * 
 	 * @param maxWordLength maximum allowed word length
-	 * @param maxElements maximum allowed number of elements 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
 	 * @return generated word set 
 	 */
 	public WordSet generateWordSet(int maxWordLength, long maxElements) { 
 		WordSet wordSet = new WordSet(); 
-		int wordLength = 1; 
-		Set<List<Integer>> lastSet = new LinkedHashSet<List<Integer>>(); 
-		while(wordLength <= maxWordLength) { 
-			addWords(wordSet, wordLength, lastSet, maxElements); 
-			if(maxElements > 0 && wordSet.size() > maxElements) { 
+		DiscreteAutomaton reference = loadReference(); 
+		int[] alphabet = getAlphabet(); 
+		// the words of the last length, by their number in the word set, and their reference states
+		int[] frontier = new int[] { -1 }; 
+		int[] frontierStates = new int[] { 0 }; 
+		int[] word = new int[Math.max(0, maxWordLength)]; 
+		for(int wordLength = 1; wordLength <= maxWordLength; wordLength++) { 
+			int[] added = new int[frontier.length * alphabet.length]; 
+			int[] addedStates = new int[added.length]; 
+			int count = 0; 
+			extending:
+			for(int i = 0; i < frontier.length; i++) { 
+				if(frontier[i] >= 0) { 
+					wordSet.copyWord(frontier[i], word); 
+				}
+				for(int input: alphabet) { 
+					// the words of length 1 are always added, the longer ones up to the limit
+					if(wordLength > 1 && maxElements > 0 && wordSet.size() >= maxElements) { 
+						break extending; 
+					}
+					word[wordLength - 1] = input; 
+					int state = reference.getTransition(frontierStates[i], input); 
+					int index = (int) wordSet.size(); 
+					if(wordSet.add(word, wordLength, reference.isAccepted(state))) { 
+						added[count] = index; 
+						addedStates[count++] = state; 
+					}
+				}
+			}
+			if(maxElements > 0 && wordSet.size() >= maxElements) { 
 				break; 
 			} 
-			wordLength++; 
+			frontier = Arrays.copyOf(added, count); 
+			frontierStates = Arrays.copyOf(addedStates, count); 
 		}
 		return wordSet; 
 	}
 
 
 	/**
-	 * Adds the words to the word set recursively 
+	 * Generates a characteristic sample of the reference automaton: the shortest 
+	 * access word of each reachable state, the access words extended by each 
+	 * input so that every transition is exercised, and each of these words 
+	 * followed by the shortest suffix distinguishing the state it reaches from 
+	 * every other state. The sample has at most <i>n</i>&middot;(|&Sigma;|+1)&middot;<i>n</i> 
+	 * words for <i>n</i> reference states, whatever the lengths of the words, 
+	 * instead of the exponential number of words of <code>generateWordSet</code>. 
+	 * 
+	 * An automaton with at most as many states as the minimal reference that 
+	 * classifies the sample correctly is equivalent to the reference; larger 
+	 * automata may still fit such a small sample without being equivalent, so 
+	 * the search should be limited to few states or the sample extended. 
 	 * 
-	 * @param wordSet currently built word set 
-	 * @param wordLength current word length 
-	 * @param last elements added during the last call  
-	 * @param maxElements maximum number of elements 
-	 */
-	private void addWords(WordSet wordSet, int wordLength, 
-			Set<List<Integer>> last, long maxElements) { 
-		if(last.isEmpty()) { 
-			addSingleSizedElements(wordSet, last); 
-			return; 
-		} 
-		Set<List<Integer>> added = new LinkedHashSet<List<Integer>>(); 
-		for(List<Integer> lastAdded: last) { 
-			for(Integer inputToAppend: this.inputs) { 
-				if(maxElements > 0 && wordSet.size() >= maxElements) { 
-					return; 
+	 * @return characteristic sample, without the empty word 
+	 */
+	public WordSet generateCharacteristicSample() { 
+		DiscreteAutomaton reference = loadReference(); 
+		int[] alphabet = getAlphabet(); 
+		int n = reference.getStateNumber(); 
+		// reachable states in breadth first order, with their shortest access words
+		int[][] access = new int[n][]; 
+		int[] order = new int[n]; 
+		access[0] = new int[0]; 
+		int reached = 1; 
+		for(int i = 0; i < reached; i++) { 
+			int state = order[i]; 
+			for(int input: alphabet) { 
+				int next = reference.getTransition(state, input); 
+				if(access[next] == null) { 
+					access[next] = append(access[state], input); 
+					order[reached++] = next; 
 				}
-				List<Integer> newWord = new ArrayList<Integer>(lastAdded); 
-				newWord.add(inputToAppend); 
-				ComputeResults results = this.computer.compute(newWord); 
-				if(results.isAccepted()) { 
-					wordSet.addAccepted(newWord);
- 				} else { 
- 					wordSet.addNonAccepted(newWord);
- 				}
-				added.add(newWord); 
-			} 
+			}
+		}
+		int[][][] suffixes = findDistinguishingSuffixes(reference, alphabet); 
+		WordSet wordSet = new WordSet(); 
+		for(int i = 0; i < reached; i++) { 
+			int state = order[i]; 
+			addDistinguished(wordSet, reference, access[state], state, suffixes); 
+			for(int input: alphabet) { 
+				addDistinguished(wordSet, reference, append(access[state], input), reference.getTransition(state, input), suffixes); 
+			}
+		}
+		return wordSet; 
+	}
+
+
+	/**
+	 * Adds a word followed by each suffix distinguishing the state it reaches 
+	 * from another state, the word itself standing for the empty suffix 
+	 * 
+	 * @param word word 
+	 * @param state reference state reached by the word 
+	 * @param suffixes distinguishing suffixes of the pairs of states 
+	 */
+	private static void addDistinguished(WordSet wordSet, DiscreteAutomaton reference, int[] word, int state, int[][][] suffixes) { 
+		for(int other = 0; other < suffixes.length; other++) { 
+			int[] suffix = other == state ? new int[0] : suffixes[state][other]; 
+			if(suffix == null || word.length + suffix.length == 0) { 
+				continue; 
+			}
+			int[] extended = Arrays.copyOf(word, word.length + suffix.length); 
+			System.arraycopy(suffix, 0, extended, word.length, suffix.length); 
+			if(wordSet.indexOf(extended, extended.length) >= 0) { 
+				continue; 
+			}
+			int end = state; 
+			for(int input: suffix) { 
+				end = reference.getTransition(end, input); 
+			}
+			wordSet.add(extended, extended.length, reference.isAccepted(end)); 
 		}
-		last.clear();
-		last.addAll(added); 
 	}
 
 
 	/**
-	 * Adds initial words, containing just one input 
+	 * Finds the shortest suffix distinguishing each pair of states, round after 
+	 * round: the pairs of states with different labels are distinguished by the 
+	 * empty suffix, and a pair is distinguished in a round by an input leading 
+	 * to a pair distinguished in an earlier round. 
 	 * 
-	 * @param wordSet
-	 * @param last
+	 * @return suffix of each pair of states, <code>null</code> for the equivalent states 
 	 */
-	private void addSingleSizedElements(WordSet wordSet, Set<List<Integer>> last) {
-		Set<List<Integer>> added = new LinkedHashSet<List<Integer>>(); 
-		
+	private static int[][][] findDistinguishingSuffixes(DiscreteAutomaton reference, int[] alphabet) { 
+		int n = reference.getStateNumber(); 
+		int[][][] suffixes = new int[n][n][]; 
+		int[][] rounds = new int[n][n]; 
+		for(int p = 0; p < n; p++) { 
+			for(int q = 0; q < n; q++) { 
+				if(reference.isAccepted(p) != reference.isAccepted(q)) { 
+					suffixes[p][q] = new int[0]; 
+				}
+			}
+		}
+		boolean changed = true; 
+		for(int round = 1; changed; round++) { 
+			changed = false; 
+			for(int p = 0; p < n; p++) { 
+				for(int q = p + 1; q < n; q++) { 
+					if(suffixes[p][q] != null) { 
+						continue; 
+					}
+					for(int input: alphabet) { 
+						int nextP = reference.getTransition(p, input); 
+						int nextQ = reference.getTransition(q, input); 
+						if(suffixes[nextP][nextQ] != null && rounds[nextP][nextQ] < round) { 
+							int[] suffix = new int[suffixes[nextP][nextQ].length + 1]; 
+							suffix[0] = input; 
+							System.arraycopy(suffixes[nextP][nextQ], 0, suffix, 1, suffix.length - 1); 
+							suffixes[p][q] = suffixes[q][p] = suffix; 
+							rounds[p][q] = rounds[q][p] = round; 
+							changed = true; 
+							break; 
+						}
+					}
+				}
+			}
+		}
+		return suffixes; 
+	}
+
+
+	private static int[] append(int[] word, int input) { 
+		int[] extended = Arrays.copyOf(word, word.length + 1); 
+		extended[word.length] = input; 
+		return extended; 
+	}
+
+
+	/**
+	 * Generates a word set of words drawn uniformly at random within each length, 
+	 * spread evenly over the lengths (see <code>WordSampler</code>), rather than 
+	 * the shortest words of <code>generateWordSet(maxWordLength, maxElements)</code>. 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements number of words 
+	 * @param stratified <code>true</code> to draw as many accepted as non accepted 
+	 * 			words of each length, as far as possible
+	 * @return generated word set 
+	 */
+	public WordSet generateRandomWordSet(int maxWordLength, long maxElements, boolean stratified) { 
+		return new WordSampler(this.automaton, maxWordLength).generateWordSet(maxElements, stratified, SingletonRandom.getRandom()); 
+	}
+
+
+	/**
+	 * Generates the words of <code>generateWordSet(maxWordLength, maxElements)</code> 
+	 * on a pool, in the same order. The words are split into the subtrees of the 
+	 * prefixes of the same length, with a few prefixes per thread of the pool; 
+	 * each task generates the words of its prefixes into packed blocks of words, 
+	 * one block per length, and the blocks are appended to the word set length 
+	 * after length, in the order of the prefixes. 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
+	 * @param pool pool to generate the words on, <code>null</code> to generate them on the calling thread 
+	 * @return generated word set 
+	 */
+	public WordSet generateWordSet(int maxWordLength, long maxElements, ForkJoinPool pool) { 
+		int[] alphabet = getAlphabet(); 
+		if(pool == null || alphabet.length < 2) { 
+			return generateWordSet(maxWordLength, maxElements); 
+		}
+		int prefixLength = 1; 
+		long prefixes = alphabet.length; 
+		while(prefixes < pool.getParallelism() * TASKS_PER_THREAD && prefixLength < maxWordLength) { 
+			prefixLength++; 
+			prefixes *= alphabet.length; 
+		}
+		if(prefixLength >= maxWordLength || prefixes > Integer.MAX_VALUE) { 
+			return generateWordSet(maxWordLength, maxElements); 
+		}
+		// the prefixes themselves and the shorter words are generated on the calling thread
+		WordSet wordSet = generateWordSet(prefixLength, maxElements); 
+		// number of words kept of each length, the first ones of the length
+		long[] kept = new long[maxWordLength + 1]; 
+		long total = wordSet.size(); 
+		long words = prefixes; 
+		for(int length = prefixLength + 1; length <= maxWordLength; length++) { 
+			words = multiply(words, alphabet.length); 
+			kept[length] = maxElements > 0 ? Math.max(0, Math.min(words, maxElements - total)) : words; 
+			total = add(total, kept[length]); 
+		}
+		if(kept[prefixLength + 1] == 0) { 
+			return wordSet; 
+		}
+		Block[][] blocks = new Block[(int) prefixes][]; 
+		PrefixTask task = new PrefixTask(loadReference(), alphabet, prefixLength, kept, blocks, 0, blocks.length); 
+		if(ForkJoinTask.getPool() == pool) { 
+			task.invoke(); 
+		} else { 
+			pool.invoke(task); 
+		}
+		for(int length = prefixLength + 1; length <= maxWordLength; length++) { 
+			for(int prefix = 0; prefix < blocks.length; prefix++) { 
+				Block block = blocks[prefix][length - prefixLength - 1]; 
+				if(block != null) { 
+					wordSet.addDistinct(block.symbols, length, block.labels.length, block.labels, block.fingerprints); 
+					// the appended blocks are released as the word set grows
+					blocks[prefix][length - prefixLength - 1] = null; 
+				}
+			}
+		}
+		return wordSet; 
+	}
+
+
+	/**
+	 * Generates the prefix tree of the words of <code>generateWordSet(maxWordLength, maxElements)</code> 
+	 * directly, without building the word set: the words are generated in depth 
+	 * first order, each node costing a single transition of the reference automaton. 
+	 * With a limit, the longest words kept are the first ones in the order of 
+	 * <code>generateWordSet</code>, like in the word set. 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
+	 * @return prefix tree of the words 
+	 */
+	public WordTrie generateTrie(int maxWordLength, long maxElements) { 
+		DiscreteAutomaton reference = loadReference(); 
+		int[] alphabet = getAlphabet(); 
+		WordTrie trie = new WordTrie(1024); 
+		if(maxWordLength < 1 || alphabet.length == 0) { 
+			trie.finish(); 
+			return trie; 
+		}
+		// number of words shorter than each length, saturated at Long.MAX_VALUE
+		long[] shorter = new long[maxWordLength + 1]; 
+		long words = 1; 
+		for(int length = 1; length <= maxWordLength; length++) { 
+			words = multiply(words, alphabet.length); 
+			if(length < maxWordLength) { 
+				shorter[length + 1] = add(shorter[length], words); 
+			}
+		}
+		int[] nodes = new int[maxWordLength + 1]; 
+		int[] states = new int[maxWordLength + 1]; 
+		long[] ranks = new long[maxWordLength + 1]; 
+		int[] digits = new int[maxWordLength + 1]; 
+		digits[0] = -1; 
+		int depth = 0; 
+		while(depth >= 0) { 
+			if(depth == maxWordLength || ++digits[depth] == alphabet.length) { 
+				depth--; 
+				continue; 
+			}
+			int length = depth + 1; 
+			// position of the word among the words of its length, in the order of generateWordSet
+			long rank = add(multiply(ranks[depth], alphabet.length), digits[depth]); 
+			if(length > 1 && maxElements > 0 && add(shorter[length], rank) >= maxElements) { 
+				// the following siblings and all the descendants come later
+				depth--; 
+				continue; 
+			}
+			int input = alphabet[digits[depth]]; 
+			int state = reference.getTransition(states[depth], input); 
+			int node = trie.addNode(nodes[depth], input); 
+			trie.addEnd(node, reference.isAccepted(state)); 
+			depth++; 
+			nodes[depth] = node; 
+			states[depth] = state; 
+			ranks[depth] = rank; 
+			digits[depth] = -1; 
+		}
+		trie.finish(); 
+		return trie; 
+	}
+
+
+	/**
+	 * Words of one length generated under a prefix, packed one after another 
+	 */
+	private static class Block { 
+
+		private int[] symbols; 
+
+		private boolean[] labels; 
+
+		private long[] fingerprints; 
+
+
+		Block(int length, int number) { 
+			this.symbols = new int[length * number]; 
+			this.labels = new boolean[number]; 
+			this.fingerprints = new long[number]; 
+		}
+	}
+
+
+	/**
+	 * Task generating the words of a range of prefixes, split in halves 
+	 * until a single prefix is left. The words of each length extend the 
+	 * words of the previous length under the same prefix. 
+	 */
+	private static class PrefixTask extends RecursiveAction { 
+
+		private static final long serialVersionUID = 1L; 
+
+		private DiscreteAutomaton reference; 
+
+		private int[] alphabet; 
+
+		private int prefixLength; 
+
+		private long[] kept; 
+
+		private Block[][] blocks; 
+
+		private int first; 
+
+		private int last; 
+
+
+		/**
+		 * @param reference reference automaton, only read by the task 
+		 * @param alphabet allowed inputs, in increasing order 
+		 * @param prefixLength length of the prefixes 
+		 * @param kept number of words kept of each length 
+		 * @param blocks blocks of each prefix, filled by the task 
+		 * @param first number of the first prefix, in the order of the words 
+		 * @param last end (exclusive) of the prefix range 
+		 */
+		PrefixTask(DiscreteAutomaton reference, int[] alphabet, int prefixLength, long[] kept, Block[][] blocks, int first, int last) { 
+			this.reference = reference; 
+			this.alphabet = alphabet; 
+			this.prefixLength = prefixLength; 
+			this.kept = kept; 
+			this.blocks = blocks; 
+			this.first = first; 
+			this.last = last; 
+		}
+
+
+		@Override
+		protected void compute() { 
+			if(this.last - this.first > 1) { 
+				int middle = (this.first + this.last) >>> 1; 
+				invokeAll(new PrefixTask(this.reference, this.alphabet, this.prefixLength, this.kept, this.blocks, this.first, middle),
+						new PrefixTask(this.reference, this.alphabet, this.prefixLength, this.kept, this.blocks, middle, this.last)); 
+				return; 
+			}
+			int prefix = this.first; 
+			int maxWordLength = this.kept.length - 1; 
+			Block[] prefixBlocks = new Block[maxWordLength - this.prefixLength]; 
+			this.blocks[prefix] = prefixBlocks; 
+			// the prefix, as a block of a single word
+			Block parents = new Block(this.prefixLength, 1); 
+			int[] parentStates = new int[1]; 
+			for(int i = this.prefixLength - 1, rest = prefix; i >= 0; i--, rest /= this.alphabet.length) { 
+				parents.symbols[i] = this.alphabet[rest % this.alphabet.length]; 
+			}
+			for(int i = 0; i < this.prefixLength; i++) { 
+				parentStates[0] = this.reference.getTransition(parentStates[0], parents.symbols[i]); 
+			}
+			long start = prefix; 
+			for(int length = this.prefixLength + 1; length <= maxWordLength; length++) { 
+				int parentNumber = parents.labels.length; 
+				start *= this.alphabet.length; 
+				// the words kept are the first ones of their length, across all the prefixes
+				int number = (int) Math.max(0, Math.min((long) parentNumber * this.alphabet.length, this.kept[length] - start)); 
+				if(number == 0) { 
+					break; 
+				}
+				Block block = new Block(length, number); 
+				int[] states = new int[number]; 
+				for(int i = 0; i < number; i++) { 
+					int parent = i / this.alphabet.length; 
+					int offset = i * length; 
+					System.arraycopy(parents.symbols, parent * (length - 1), block.symbols, offset, length - 1); 
+					int input = this.alphabet[i % this.alphabet.length]; 
+					block.symbols[offset + length - 1] = input; 
+					states[i] = this.reference.getTransition(parentStates[parent], input); 
+					block.labels[i] = this.reference.isAccepted(states[i]); 
+					block.fingerprints[i] = WordSet.fingerprint(block.symbols, offset, length); 
+				}
+				prefixBlocks[length - this.prefixLength - 1] = block; 
+				parents = block; 
+				parentStates = states; 
+			}
+		}
+	}
+
+
+	private static long multiply(long value, int factor) { 
+		return value > Long.MAX_VALUE / factor ? Long.MAX_VALUE : value * factor; 
+	}
+
+
+	private static long add(long value, long other) { 
+		return value > Long.MAX_VALUE - other ? Long.MAX_VALUE : value + other; 
+	}
+
+
+	/**
+	 * @return the reference automaton, the initial state being the state 0 
+	 */
+	private DiscreteAutomaton loadReference() { 
+		DiscreteAutomaton reference = new DiscreteAutomaton(); 
+		reference.load(this.automaton); 
+		return reference; 
+	}
+
+
+	/**
+	 * @return the allowed inputs, in increasing order 
+	 */
+	private int[] getAlphabet() { 
+		int[] alphabet = new int[this.inputs.size()]; 
+		int index = 0; 
 		for(Integer input: this.inputs) { 
-			List<Integer> singleElementList = new ArrayList<Integer>(); 
-			singleElementList.add(input); 
-			ComputeResults results = computer.compute(singleElementList); 
-			
-			if(results.isAccepted()) { 
-				wordSet.addAccepted(singleElementList);
+			alphabet[index++] = input; 
+		}
+		return alphabet; 
+	}
+
+
+	/**
+	 * Streams the words of <code>generateWordSet(maxWordLength, maxElements)</code> 
+	 * with their labels, in the same order (by length, then by the order of the 
+	 * inputs), without keeping them in memory: the stream only holds the current 
+	 * word and the reference states of its prefixes, so the words can be written 
+	 * to a file or added to a <code>WordSet</code> one by one. 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit; the 
+	 * 			words of length 1 are always included, like in <code>generateWordSet</code>
+	 * @return sequential stream of the labeled words 
+	 */
+	public Stream<LabeledWord> stream(int maxWordLength, long maxElements) { 
+		return StreamSupport.stream(spliterator(maxWordLength, maxElements), false); 
+	}
+
+
+	/**
+	 * Iterates over the words of <code>generateWordSet(maxWordLength, maxElements)</code> 
+	 * with their labels (see <code>stream</code>) 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
+	 * @return iterator of the labeled words 
+	 */
+	public Iterator<LabeledWord> iterator(int maxWordLength, long maxElements) { 
+		return Spliterators.iterator(spliterator(maxWordLength, maxElements)); 
+	}
+
+
+	/**
+	 * Creates the spliterator of the words of <code>generateWordSet(maxWordLength, maxElements)</code> 
+	 * (see <code>stream</code>) 
+	 * 
+	 * @param maxWordLength maximum allowed word length 
+	 * @param maxElements maximum allowed number of elements, 0 for no limit 
+	 * @return spliterator of the labeled words 
+	 */
+	public Spliterator<LabeledWord> spliterator(int maxWordLength, long maxElements) { 
+		return new WordSpliterator(loadReference(), getAlphabet(), maxWordLength, maxElements); 
+	}
+
+
+	/**
+	 * Spliterator enumerating the words like an odometer over the indexes of 
+	 * the inputs. The reference state after each prefix of the current word is 
+	 * kept, so moving to the next word only runs the changed suffix. 
+	 */
+	private static class WordSpliterator implements Spliterator<LabeledWord> { 
+
+		private DiscreteAutomaton reference; 
+
+		private int[] alphabet; 
+
+		private int maxWordLength; 
+
+		private long maxElements; 
+
+		/**
+		 * Input indexes of the current word 
+		 */
+		private int[] digits; 
+
+		/**
+		 * Reference state after each prefix of the current word, the initial state first 
+		 */
+		private int[] states; 
+
+		/**
+		 * Length of the current word, 0 before the first word 
+		 */
+		private int length; 
+
+		/**
+		 * Number of emitted words 
+		 */
+		private long emitted; 
+
+		private boolean finished; 
+
+
+		WordSpliterator(DiscreteAutomaton reference, int[] alphabet, int maxWordLength, long maxElements) { 
+			this.reference = reference; 
+			this.alphabet = alphabet; 
+			this.maxWordLength = maxWordLength; 
+			this.maxElements = maxElements; 
+			this.digits = new int[Math.max(0, maxWordLength)]; 
+			this.states = new int[Math.max(0, maxWordLength) + 1]; 
+			this.finished = maxWordLength < 1 || alphabet.length == 0; 
+		}
+
+
+		@Override
+		public boolean tryAdvance(Consumer<? super LabeledWord> action) { 
+			if(this.finished) { 
+				return false; 
+			}
+			int from = advance(); 
+			if(this.finished) { 
+				return false; 
+			}
+			for(int i = from; i < this.length; i++) { 
+				this.states[i + 1] = this.reference.getTransition(this.states[i], this.alphabet[this.digits[i]]); 
+			}
+			int[] word = new int[this.length]; 
+			for(int i = 0; i < this.length; i++) { 
+				word[i] = this.alphabet[this.digits[i]]; 
+			}
+			this.emitted++; 
+			action.accept(new LabeledWord(word, this.reference.isAccepted(this.states[this.length]))); 
+			return true; 
+		}
+
+
+		/**
+		 * Moves to the next word 
+		 * 
+		 * @return first position of the word that changed 
+		 */
+		private int advance() { 
+			int position = this.length - 1; 
+			while(position >= 0 && this.digits[position] == this.alphabet.length - 1) { 
+				this.digits[position] = 0; 
+				position--; 
+			}
+			if(position >= 0) { 
+				this.digits[position]++; 
 			} else { 
-				wordSet.addNonAccepted(singleElementList); 
-			} 
-			added.add(singleElementList); 
+				this.length++; 
+				position = 0; 
+			}
+			// the words of length 1 are always generated, the longer ones up to the limit
+			if(this.length > this.maxWordLength
+					|| (this.length > 1 && this.maxElements > 0 && this.emitted >= this.maxElements)) { 
+				this.finished = true; 
+			}
+			return position; 
+		}
+
+
+		@Override
+		public Spliterator<LabeledWord> trySplit() { 
+			return null; 
+		}
+
+
+		@Override
+		public long estimateSize() { 
+			if(this.finished) { 
+				return 0; 
+			}
+			double total = 0; 
+			double words = 1; 
+			for(int length = 1; length <= this.maxWordLength; length++) { 
+				words *= this.alphabet.length; 
+				total += words; 
+			}
+			if(this.maxElements > 0) { 
+				total = Math.min(total, Math.max(this.maxElements, this.alphabet.length)); 
+			}
+			return (long) Math.min(Long.MAX_VALUE, total - this.emitted); 
+		}
+
+
+		@Override
+		public int characteristics() { 
+			return Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE; 
 		}
-		last.addAll(added);
 	}
 }
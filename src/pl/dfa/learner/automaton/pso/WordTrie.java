@@ -0,0 +1,246 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Prefix tree (trie) of a set of words. Each node stands for a prefix of 
+ * at least one word, node 0 being the empty prefix (the root). 
+ * Nodes are numbered in depth first (pre) order, so a parent always has 
+ * a lower number than its children and the subtree of a node <i>u</i> 
+ * is the range of nodes from <i>u</i> up to <code>getSubtreeEnd(u)</code>. 
+ * For each node the trie keeps the number of accepted and non accepted 
+ * words equal to its prefix. 
+ * 
+ */
+public class WordTrie { 
+
+	/**
+	 * Number of nodes 
+	 */
+	int nodeCount; 
+
+	/**
+	 * Parent of each node, -1 for the root 
+	 */
+	int[] parent; 
+
+	/**
+	 * Length of the prefix of each node 
+	 */
+	int[] depth; 
+
+	/**
+	 * Highest node depth 
+	 */
+	int maxDepth; 
+
+	/**
+	 * Input on the edge from the parent, -1 for the root 
+	 */
+	int[] input; 
+
+	/**
+	 * First node after the subtree of each node 
+	 */
+	int[] subtreeEnd; 
+
+	/**
+	 * Number of accepted words ending in each node 
+	 */
+	int[] acceptedEnds; 
+
+	/**
+	 * Number of non accepted words ending in each node 
+	 */
+	int[] nonAcceptedEnds; 
+
+
+	/**
+	 * Builds the trie of the words. 
+	 * 
+	 * @param words words, as arrays of inputs 
+	 * @param labels word labels, <code>true</code> for the accepted words 
+	 */
+	public WordTrie(final int[][] words, boolean[] labels) { 
+		Integer[] sorted = new Integer[words.length]; 
+		int maxLength = 0; 
+		for(int i = 0; i < words.length; i++) { 
+			sorted[i] = i; 
+			maxLength = Math.max(maxLength, words[i].length); 
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() { 
+			@Override
+			public int compare(Integer first, Integer second) { 
+				return compareWords(words[first], words[second]); 
+			}
+		}); 
+		init(words.length + 1); 
+		addNode(-1, -1); 
+		int[] path = new int[maxLength + 1]; 
+		int[] previous = new int[0]; 
+		for(Integer index: sorted) { 
+			int[] word = words[index]; 
+			int common = 0; 
+			while(common < word.length && common < previous.length
+					&& word[common] == previous[common]) { 
+				common++; 
+			}
+			for(int depth = common; depth < word.length; depth++) { 
+				path[depth + 1] = addNode(path[depth], word[depth]); 
+			}
+			if(labels[index]) { 
+				this.acceptedEnds[path[word.length]]++; 
+			} else { 
+				this.nonAcceptedEnds[path[word.length]]++; 
+			}
+			previous = word; 
+		}
+		computeSubtreeEnds(); 
+	}
+
+
+	/**
+	 * Creates a trie holding only the root, the words are then added with 
+	 * <code>addNode</code> and <code>addEnd</code> in depth first order, 
+	 * followed by <code>finish</code> 
+	 * 
+	 * @param capacity initial number of nodes 
+	 */
+	WordTrie(int capacity) { 
+		init(Math.max(1, capacity)); 
+		addNode(-1, -1); 
+	}
+
+
+	/**
+	 * Allocates the node arrays 
+	 * 
+	 * @param capacity initial number of nodes 
+	 */
+	private void init(int capacity) { 
+		this.nodeCount = 0; 
+		this.parent = new int[capacity]; 
+		this.depth = new int[capacity]; 
+		this.input = new int[capacity]; 
+		this.subtreeEnd = new int[capacity]; 
+		this.acceptedEnds = new int[capacity]; 
+		this.nonAcceptedEnds = new int[capacity]; 
+	}
+
+
+	/**
+	 * Adds a node, as the last child of its parent 
+	 * 
+	 * @param parentNode parent node 
+	 * @param edgeInput input on the edge from the parent 
+	 * @return the new node 
+	 */
+	int addNode(int parentNode, int edgeInput) { 
+		if(this.nodeCount == this.parent.length) { 
+			int capacity = 2 * this.parent.length; 
+			this.parent = Arrays.copyOf(this.parent, capacity); 
+			this.depth = Arrays.copyOf(this.depth, capacity); 
+			this.input = Arrays.copyOf(this.input, capacity); 
+			this.subtreeEnd = Arrays.copyOf(this.subtreeEnd, capacity); 
+			this.acceptedEnds = Arrays.copyOf(this.acceptedEnds, capacity); 
+			this.nonAcceptedEnds = Arrays.copyOf(this.nonAcceptedEnds, capacity); 
+		}
+		int node = this.nodeCount++; 
+		this.parent[node] = parentNode; 
+		this.depth[node] = parentNode < 0 ? 0 : this.depth[parentNode] + 1; 
+		this.maxDepth = Math.max(this.maxDepth, this.depth[node]); 
+		this.input[node] = edgeInput; 
+		return node; 
+	}
+
+
+	/**
+	 * Counts a word ending in a node 
+	 * 
+	 * @param node node of the word 
+	 * @param accepted <code>true</code> if the word is accepted 
+	 */
+	void addEnd(int node, boolean accepted) { 
+		if(accepted) { 
+			this.acceptedEnds[node]++; 
+		} else { 
+			this.nonAcceptedEnds[node]++; 
+		}
+	}
+
+
+	/**
+	 * Completes a trie built node by node 
+	 */
+	void finish() { 
+		computeSubtreeEnds(); 
+	}
+
+
+	/**
+	 * Computes the subtree ranges, the subtree of a node ends 
+	 * where the subtree of its last child ends. 
+	 */
+	private void computeSubtreeEnds() { 
+		for(int node = 0; node < this.nodeCount; node++) { 
+			this.subtreeEnd[node] = node + 1; 
+		}
+		for(int node = this.nodeCount - 1; node > 0; node--) { 
+			int parentNode = this.parent[node]; 
+			this.subtreeEnd[parentNode] = Math.max(this.subtreeEnd[parentNode], this.subtreeEnd[node]); 
+		}
+	}
+
+
+	/**
+	 * Lexicographic order of words, a prefix goes before the longer words 
+	 */
+	private static int compareWords(int[] first, int[] second) { 
+		int length = Math.min(first.length, second.length); 
+		for(int i = 0; i < length; i++) { 
+			if(first[i] != second[i]) { 
+				return first[i] < second[i] ? -1 : 1; 
+			}
+		}
+		return first.length - second.length; 
+	}
+
+
+	/**
+	 * @return the number of nodes, including the root 
+	 */
+	public int getNodeCount() { 
+		return this.nodeCount; 
+	}
+
+
+	/**
+	 * @return the length of the longest word 
+	 */
+	public int getMaxDepth() { 
+		return this.maxDepth; 
+	}
+
+
+	/**
+	 * Gets the first node after the subtree of a node 
+	 * 
+	 * @param node node 
+	 * @return end (exclusive) of the subtree of <code>node</code> 
+	 */
+	public int getSubtreeEnd(int node) { 
+		return this.subtreeEnd[node]; 
+	}
+
+
+	@Override
+	public String toString() { 
+		return "WordTrie ("+this.nodeCount+" nodes). "; 
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAComputer;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Checks that the words of the characteristic sample of each example are 
+ * classified by the reference automaton as they are labelled 
+ * 
+ */
+public class CharacteristicSampleTest { 
+
+	private static Logger logger = LogManager.getLogger(CharacteristicSampleTest.class); 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			for(String example: new String[] {"accepting", "nonAccepting", "twoEven", "threeInputsTest"}) { 
+				dfa = DFAFactory.parseFromFile(new File("examples\\"+example+".dfa")); 
+				logger.info(dfa); 
+				WordSet sample = new WordSetGenerator(dfa).generateCharacteristicSample(); 
+				logger.info(sample.toString(true)); 
+				DFAComputer computer = new DFAComputer(dfa); 
+				int wrong = 0; 
+				for(int i = 0; i < sample.size(); i++) { 
+					if(computer.compute(sample.getWordList(i)).isAccepted() != sample.isAccepted(i)) { 
+						wrong++; 
+					}
+				}
+				if(wrong > 0) { 
+					logger.error(example+": words labelled differently from the reference: "+wrong); 
+				} else { 
+					logger.info(example+": "+sample.size()+" words, all labelled like the reference"); 
+				}
+			}
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+}
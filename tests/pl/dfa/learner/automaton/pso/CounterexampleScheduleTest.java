@@ -0,0 +1,65 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Runs the PSO on the three input example with the counterexample schedule 
+ * and reports the share of the word set the sample ended at, then checks 
+ * the best solution on the full word set 
+ * 
+ */
+public class CounterexampleScheduleTest { 
+
+	private static Logger logger = LogManager.getLogger(CounterexampleScheduleTest.class); 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			dfa = DFAFactory.parseFromFile(new File("examples\\threeInputsTest.dfa")); 
+			logger.info(dfa); 
+			WordSet wordSet = new WordSetGenerator(dfa).generateWordSet(10); 
+			logger.info("Words: "+wordSet.size()); 
+
+			PSOParams params = new PSOParams(); 
+			params.setBoundedEvaluation(true); 
+			params.setOptimalAcceptance(true); 
+			params.setCacheCapacity(4096); 
+			PSO pso = new PSO(params); 
+			CounterexampleSchedule schedule = new CounterexampleSchedule(64, 32, 10); 
+			pso.setSchedule(schedule); 
+			Results results = pso.search(dfa.getInputs(), wordSet); 
+			logger.info(schedule); 
+			logger.info("Sample size: "+schedule.size()+" words, "
+					+(100.0 * schedule.size() / wordSet.size())+"% of the word set"); 
+
+			Solution best = results.bestSolutions[0]; 
+			double evaluation = new Evaluator(wordSet).evaluate(new Solution(best)); 
+			if(evaluation != best.getEvaluation()) { 
+				logger.error("The best solution was reported with "+best.getEvaluation()
+						+" but evaluates to "+evaluation+" on the full word set"); 
+			} else { 
+				logger.info("Best evaluation on the full word set: "+evaluation); 
+			}
+			logger.info(DFAFactory.convertFromSolution(best)); 
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+}
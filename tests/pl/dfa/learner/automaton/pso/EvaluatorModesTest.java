@@ -0,0 +1,157 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Compares the evaluations of random solutions in every evaluation mode 
+ * (delta, cache, bounded, sharded, lane, sharded lane and lockstep) with 
+ * the plain <code>evaluate(Solution)</code>, with and without the optimal 
+ * acceptance. The candidates of the delta evaluations change a transition 
+ * at a time, like the particles do. 
+ * 
+ */
+public class EvaluatorModesTest { 
+
+	private static Logger logger = LogManager.getLogger(EvaluatorModesTest.class); 
+
+	/**
+	 * Number of solutions evaluated per acceptance mode 
+	 */
+	private static final int SOLUTIONS = 300; 
+
+	/**
+	 * Highest number of states of the solutions 
+	 */
+	private static final int MAX_STATES = 20; 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			dfa = DFAFactory.parseFromFile(new File("examples\\threeInputsTest.dfa")); 
+			logger.info(dfa); 
+			// long enough to be split into shards
+			WordSet wordSet = new WordSetGenerator(dfa).generateWordSet(8); 
+			logger.info("Words: "+wordSet.size()); 
+			int mismatches = compare(dfa, wordSet, false) + compare(dfa, wordSet, true); 
+			if(mismatches > 0) { 
+				logger.error("Evaluations differing from evaluate(Solution): "+mismatches); 
+			} else { 
+				logger.info("All the evaluation modes agree with evaluate(Solution)"); 
+			}
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+
+	/**
+	 * Evaluates random solutions in every mode 
+	 * 
+	 * @return number of evaluations differing from the plain ones 
+	 */
+	private static int compare(DFA dfa, WordSet wordSet, boolean optimalAcceptance) { 
+		ForkJoinPool pool = new ForkJoinPool(4); 
+		Evaluator plain = createEvaluator(wordSet, optimalAcceptance); 
+		Evaluator delta = createEvaluator(wordSet, optimalAcceptance); 
+		delta.setDeltaEvaluation(true); 
+		Evaluator cached = createEvaluator(wordSet, optimalAcceptance); 
+		cached.setCache(new FitnessCache(SOLUTIONS)); 
+		Evaluator sharded = createEvaluator(wordSet, optimalAcceptance); 
+		sharded.setPool(pool); 
+		Evaluator lanes = createEvaluator(wordSet, optimalAcceptance); 
+		lanes.setLaneEvaluation(true); 
+		Evaluator shardedLanes = createEvaluator(wordSet, optimalAcceptance); 
+		shardedLanes.setLaneEvaluation(true); 
+		shardedLanes.setPool(pool); 
+		Evaluator lockstep = createEvaluator(wordSet, optimalAcceptance); 
+
+		int mismatches = 0; 
+		List<Integer> inputs = new ArrayList<Integer>(dfa.getInputs()); 
+		EvaluationTrace trace = delta.createTrace(); 
+		Solution candidate = null; 
+		List<Solution> expected = new ArrayList<Solution>(); 
+		List<Solution> batch = new ArrayList<Solution>(); 
+		for(int i = 0; i < SOLUTIONS; i++) { 
+			if(i % 10 == 0) { 
+				candidate = new Solution(MAX_STATES, dfa.getInputs()); 
+				candidate.randomiseNonRounded(); 
+			} else { 
+				// a single transition moves, like a particle step in the delta mode
+				candidate = new Solution(candidate); 
+				List<Integer> states = new ArrayList<Integer>(candidate.getStates()); 
+				Integer state = states.get(i % states.size()); 
+				Integer input = inputs.get(i % inputs.size()); 
+				candidate.setTransition(state, input, candidate.getNextValue(states.get(7 * i % states.size()), input)); 
+			}
+			Solution reference = new Solution(candidate); 
+			plain.evaluate(reference); 
+			expected.add(reference); 
+
+			Solution solution = new Solution(candidate); 
+			mismatches += check("delta", reference, solution, delta.evaluate(solution, trace)); 
+			solution = new Solution(candidate); 
+			mismatches += check("cache", reference, solution, cached.evaluate(solution)); 
+			solution = new Solution(candidate); 
+			mismatches += check("cache hit", reference, solution, cached.evaluate(solution)); 
+			solution = new Solution(candidate); 
+			mismatches += check("bounded", reference, solution, plain.evaluate(solution, 2.0)); 
+			solution = new Solution(candidate); 
+			mismatches += check("sharded", reference, solution, sharded.evaluate(solution)); 
+			solution = new Solution(candidate); 
+			mismatches += check("lane", reference, solution, lanes.evaluate(solution)); 
+			solution = new Solution(candidate); 
+			mismatches += check("sharded lane", reference, solution, shardedLanes.evaluate(solution)); 
+			batch.add(new Solution(candidate)); 
+		}
+		double[] evaluations = lockstep.evaluate(batch); 
+		for(int i = 0; i < batch.size(); i++) { 
+			mismatches += check("lockstep", expected.get(i), batch.get(i), evaluations[i]); 
+		}
+		pool.shutdown(); 
+		logger.info((optimalAcceptance ? "Optimal" : "Fixed")+" acceptance, mismatches: "+mismatches); 
+		return mismatches; 
+	}
+
+
+	private static Evaluator createEvaluator(WordSet wordSet, boolean optimalAcceptance) { 
+		Evaluator evaluator = new Evaluator(wordSet); 
+		evaluator.setOptimalAcceptance(optimalAcceptance); 
+		return evaluator; 
+	}
+
+
+	/**
+	 * Compares an evaluation and the accepted states it assigned with the plain ones 
+	 * 
+	 * @return 1 if they differ, 0 otherwise 
+	 */
+	private static int check(String mode, Solution expected, Solution solution, double evaluation) { 
+		if(evaluation != expected.getEvaluation() || solution.getEvaluation() != evaluation
+				|| !solution.getAccepted().equals(expected.getAccepted())) { 
+			logger.error(mode+" evaluation "+evaluation+" differs from "+expected.getEvaluation()
+					+", accepted states "+solution.getAccepted()+" instead of "+expected.getAccepted()); 
+			return 1; 
+		}
+		return 0; 
+	}
+
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Compares the evaluations of the exhaustive sample with the evaluations 
+ * of the generated word set, then runs the PSO on long words 
+ * 
+ */
+public class ExhaustiveSampleTest { 
+
+	private static Logger logger = LogManager.getLogger(ExhaustiveSampleTest.class); 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			dfa = DFAFactory.parseFromFile(new File("examples\\threeInputsTest.dfa")); 
+			logger.info(dfa); 
+			WordSet wordSet = new WordSetGenerator(dfa).generateWordSet(7); 
+			Evaluator enumerated = new Evaluator(wordSet); 
+			Evaluator exhaustive = new Evaluator(dfa, 7); 
+			logger.info(exhaustive.getExhaustiveSample()); 
+			int differences = 0; 
+			for(int i = 0; i < 100; i++) { 
+				Solution solution = new Solution(20, dfa.getInputs()); 
+				solution.randomiseNonRounded(); 
+				if(enumerated.evaluate(new Solution(solution)) != exhaustive.evaluate(solution)) { 
+					differences++; 
+				}
+			}
+			if(differences > 0) { 
+				logger.error("Different evaluations: "+differences); 
+			} else { 
+				logger.info("Different evaluations: "+differences); 
+			}
+
+			PSO pso = new PSO(new PSOParams()); 
+			Results results = pso.search(dfa.getInputs(), dfa, 30); 
+			logger.info(results.toStringDFAs()); 
+			logger.info(DFAFactory.convertFromSolution(results.bestSolutions[0])); 
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+}
@@ -34,6 +34,7 @@ public class PSOTest {
 			WordSetGenerator generator = new WordSetGenerator(dfa); 
 			WordSet wordSet = generator.generateWordSet(10); 
 			logger.info(wordSet.toString()); 
+			pso.setReference(dfa); 
 			
 			Results results = pso.search(dfa.getInputs(), wordSet); 
 			logger.info(results.toStringDFAs()); 
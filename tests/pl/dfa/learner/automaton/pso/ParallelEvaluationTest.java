@@ -0,0 +1,150 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Compares the evaluations of random solutions made in parallel, like the 
+ * particles of a multi-threaded search, with single-threaded evaluations. 
+ * The parallel evaluator is sharded on the pool that runs the evaluations, 
+ * word by word and in lanes, so each evaluation is called from a pool thread. 
+ * 
+ */
+public class ParallelEvaluationTest { 
+
+	private static Logger logger = LogManager.getLogger(ParallelEvaluationTest.class); 
+
+	/**
+	 * Number of solutions evaluated per round 
+	 */
+	private static final int SOLUTIONS = 200; 
+
+	/**
+	 * Number of rounds per evaluation mode 
+	 */
+	private static final int ROUNDS = 20; 
+
+	/**
+	 * Highest number of states of the solutions 
+	 */
+	private static final int MAX_STATES = 20; 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			dfa = DFAFactory.parseFromFile(new File("examples\\threeInputsTest.dfa")); 
+			logger.info(dfa); 
+			// long enough to be split into several shards per thread
+			WordSet wordSet = new WordSetGenerator(dfa).generateWordSet(9); 
+			logger.info("Words: "+wordSet.size()); 
+			int mismatches = 0; 
+			for(boolean optimalAcceptance: new boolean[] {false, true}) { 
+				for(boolean laneEvaluation: new boolean[] {false, true}) { 
+					mismatches += compare(dfa, wordSet, optimalAcceptance, laneEvaluation); 
+				}
+			}
+			if(mismatches > 0) { 
+				logger.error("Parallel evaluations differing from the single-threaded ones: "+mismatches); 
+			} else { 
+				logger.info("The parallel evaluations agree with the single-threaded ones"); 
+			}
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+
+	/**
+	 * Evaluates random solutions on a single thread, then in parallel 
+	 * 
+	 * @return number of parallel evaluations differing from the single-threaded ones 
+	 */
+	private static int compare(DFA dfa, WordSet wordSet, boolean optimalAcceptance, boolean laneEvaluation) { 
+		ForkJoinPool pool = new ForkJoinPool(4); 
+		Evaluator single = new Evaluator(wordSet); 
+		single.setOptimalAcceptance(optimalAcceptance); 
+		final Evaluator parallel = new Evaluator(wordSet); 
+		parallel.setOptimalAcceptance(optimalAcceptance); 
+		parallel.setLaneEvaluation(laneEvaluation); 
+		parallel.setPool(pool); 
+		logger.info(parallel); 
+
+		int mismatches = 0; 
+		try { 
+			for(int round = 0; round < ROUNDS; round++) { 
+				List<Solution> expected = new ArrayList<Solution>(); 
+				List<Callable<Double>> tasks = new ArrayList<Callable<Double>>(); 
+				final List<Solution> solutions = new ArrayList<Solution>(); 
+				for(int i = 0; i < SOLUTIONS; i++) { 
+					Solution candidate = new Solution(1 + i % MAX_STATES, dfa.getInputs()); 
+					candidate.randomiseNonRounded(); 
+					Solution reference = new Solution(candidate); 
+					single.evaluate(reference); 
+					expected.add(reference); 
+					final Solution solution = new Solution(candidate); 
+					solutions.add(solution); 
+					tasks.add(new Callable<Double>() { 
+						@Override
+						public Double call() { 
+							return parallel.evaluate(solution); 
+						}
+					}); 
+				}
+				List<Future<Double>> futures = pool.invokeAll(tasks); 
+				for(int i = 0; i < SOLUTIONS; i++) { 
+					mismatches += check(expected.get(i), solutions.get(i), futures.get(i).get()); 
+				}
+			}
+		} catch(InterruptedException e) { 
+			Thread.currentThread().interrupt(); 
+			logger.error("Interrupted", e); 
+		} catch(ExecutionException e) { 
+			logger.error("Parallel evaluation failed", e.getCause()); 
+			mismatches++; 
+		} finally { 
+			pool.shutdown(); 
+		}
+		logger.info((optimalAcceptance ? "Optimal" : "Fixed")+" acceptance, "
+				+(laneEvaluation ? "lanes" : "words")+", mismatches: "+mismatches); 
+		return mismatches; 
+	}
+
+
+	/**
+	 * Compares a parallel evaluation and the accepted states it assigned with 
+	 * the single-threaded ones 
+	 * 
+	 * @return 1 if they differ, 0 otherwise 
+	 */
+	private static int check(Solution expected, Solution solution, double evaluation) { 
+		if(evaluation != expected.getEvaluation() || solution.getEvaluation() != evaluation
+				|| !solution.getAccepted().equals(expected.getAccepted())) { 
+			logger.error("Parallel evaluation "+evaluation+" differs from "+expected.getEvaluation()
+					+", accepted states "+solution.getAccepted()+" instead of "+expected.getAccepted()); 
+			return 1; 
+		}
+		return 0; 
+	}
+
+}
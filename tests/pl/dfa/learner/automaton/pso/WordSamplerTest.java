@@ -0,0 +1,86 @@
+/**
+ * 
+ */
+package pl.dfa.learner.automaton.pso;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import pl.dfa.learner.automaton.DFA;
+import pl.dfa.learner.automaton.DFAComputer;
+import pl.dfa.learner.automaton.DFAFactory;
+
+/**
+ * Compares the word counts of the word sampler with the enumerated word set, 
+ * then checks the labels of sampled words against the reference automaton 
+ * 
+ */
+public class WordSamplerTest { 
+
+	private static Logger logger = LogManager.getLogger(WordSamplerTest.class); 
+
+	/**
+	 * Highest word length of the compared words 
+	 */
+	private static final int MAX_WORD_LENGTH = 8; 
+
+
+	/**
+	 * @param args 
+	 */
+	public static void main(String[] args) { 
+		DFA dfa; 
+		try { 
+			dfa = DFAFactory.parseFromFile(new File("examples\\threeInputsTest.dfa")); 
+			logger.info(dfa); 
+			WordSampler sampler = new WordSampler(dfa, MAX_WORD_LENGTH); 
+			logger.info(sampler); 
+			WordSet wordSet = new WordSetGenerator(dfa).generateWordSet(MAX_WORD_LENGTH); 
+			long[] accepted = new long[MAX_WORD_LENGTH + 1]; 
+			long[] nonAccepted = new long[MAX_WORD_LENGTH + 1]; 
+			for(int i = 0; i < wordSet.size(); i++) { 
+				int length = wordSet.getWord(i).length; 
+				if(wordSet.isAccepted(i)) { 
+					accepted[length]++; 
+				} else { 
+					nonAccepted[length]++; 
+				}
+			}
+			int differences = 0; 
+			for(int length = 1; length <= MAX_WORD_LENGTH; length++) { 
+				if(sampler.count(length, true) != accepted[length]
+						|| sampler.count(length, false) != nonAccepted[length]) { 
+					logger.error("Length "+length+": counted "+sampler.count(length, true)+" accepted and "
+							+sampler.count(length, false)+" non accepted words, enumerated "
+							+accepted[length]+" and "+nonAccepted[length]); 
+					differences++; 
+				}
+			}
+			logger.info("Lengths with different counts: "+differences); 
+
+			DFAComputer computer = new DFAComputer(dfa); 
+			Random random = new Random(1); 
+			WordSet sample = sampler.generateWordSet(1000, true, random); 
+			int wrong = 0; 
+			for(int i = 0; i < sample.size(); i++) { 
+				if(computer.compute(sample.getWordList(i)).isAccepted() != sample.isAccepted(i)) { 
+					wrong++; 
+				}
+			}
+			if(wrong > 0) { 
+				logger.error("Sampled words labelled differently from the reference: "+wrong); 
+			} else { 
+				logger.info("Sampled words: "+sample.size()+", all labelled like the reference"); 
+			}
+		} catch (IOException e) { 
+			// TODO Auto-generated catch block
+			e.printStackTrace(); 
+		}
+
+	}
+
+}